@@ -0,0 +1,102 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp.benchmarks;
+
+import com.mycompany.millionareapp.GameEngine;
+import com.mycompany.millionareapp.GameState;
+import com.mycompany.millionareapp.OffHeapQuestionBank;
+import com.mycompany.millionareapp.PrizeLadder;
+import com.mycompany.millionareapp.Question;
+import com.mycompany.millionareapp.QuestionBank;
+import com.mycompany.millionareapp.TieredQuestionPools;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * GameEngine hot paths (answer, getCurrentQuestion, 50/50) against banks from
+ * the normal 15 questions up to a million. Each game state is fresh, so the
+ * numbers include startGame. storage=offheap runs the same paths against an
+ * OffHeapQuestionBank, where every getCurrentQuestion decodes a fresh Question.
+ * startRandomGame deals a game from TieredQuestionPools and should not grow
+ * with the bank.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GameEngineBenchmark {
+
+    @Param({"15", "1000", "100000", "1000000"})
+    public int bankSize;
+
+    @Param({"heap", "offheap"})
+    public String storage;
+
+    private GameEngine engine;
+    private GameEngine randomEngine;
+    private GameState deepState;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        QuestionBank bank = SyntheticBanks.bank(bankSize);
+        engine = new GameEngine("offheap".equals(storage) ? OffHeapQuestionBank.copyOf(bank) : bank);
+        QuestionBank shared = engine.getQuestionBank();
+        randomEngine = new GameEngine(shared, PrizeLadder.classic(),
+                TieredQuestionPools.of(shared, PrizeLadder.classic().size()));
+        // a game sitting on the last question a real game can reach
+        deepState = engine.startGame("Deep");
+        for (int i = 1; i < Math.min(15, bankSize); i++) {
+            deepState.nextQuestion();
+        }
+    }
+
+    @Benchmark
+    public GameState answerCorrect() {
+        GameState s = engine.startGame("Bench");
+        Question q = engine.getCurrentQuestion(s);
+        engine.answer(s, q.getCorrectAnswer());
+        return s;
+    }
+
+    @Benchmark
+    public GameState answerWrong() {
+        GameState s = engine.startGame("Bench");
+        Question q = engine.getCurrentQuestion(s);
+        engine.answer(s, (q.getCorrectAnswer() + 1) % 4);
+        return s;
+    }
+
+    // dealing a game one random question per tier (TieredQuestionPools)
+    @Benchmark
+    public GameState startRandomGame() {
+        return randomEngine.startGame("Bench");
+    }
+
+    @Benchmark
+    public Question getCurrentQuestion() {
+        return engine.getCurrentQuestion(deepState);
+    }
+
+    @Benchmark
+    public int[] useFiftyFiftyLifeLine() {
+        return engine.useFiftyFiftyLifeLine(engine.startGame("Bench"));
+    }
+}
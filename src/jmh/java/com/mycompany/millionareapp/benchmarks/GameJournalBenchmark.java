@@ -0,0 +1,91 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp.benchmarks;
+
+import com.mycompany.millionareapp.GameEngine;
+import com.mycompany.millionareapp.GameJournal;
+import com.mycompany.millionareapp.GameState;
+import com.mycompany.millionareapp.PrizeLadder;
+import com.mycompany.millionareapp.QuestionBank;
+import com.mycompany.millionareapp.TieredQuestionPools;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * A whole 15 question game (16 journal events) played on an engine with and
+ * without a GameJournal listening. syncEvery is the journal's fsync batching:
+ * 0 only forces at segment ends, 1 forces after every write batch. Events per
+ * second is 16 times the score.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class GameJournalBenchmark {
+
+    @Param({"none", "0", "16", "1"})
+    public String syncEvery;
+
+    private GameEngine engine;
+    private GameJournal journal;
+    private Path dir;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        QuestionBank bank = SyntheticBanks.bank(1500);
+        engine = new GameEngine(bank, PrizeLadder.classic(), TieredQuestionPools.of(bank, 15), true);
+        if (!"none".equals(syncEvery)) {
+            dir = Files.createTempDirectory("journal-bench");
+            journal = GameJournal.open(dir, GameJournal.DEFAULT_SEGMENT_BYTES, Integer.parseInt(syncEvery));
+            engine.addListener(journal);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (journal != null) {
+            journal.close();
+            System.out.println(journal.stats());
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(p);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public GameState playGame() {
+        GameState s = engine.startGame("Bench");
+        while (!engine.gameIsOver(s)) {
+            engine.answer(s, engine.getCurrentQuestion(s).getCorrectAnswer());
+        }
+        return s;
+    }
+}
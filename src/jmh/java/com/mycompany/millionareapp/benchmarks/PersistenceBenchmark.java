@@ -0,0 +1,297 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp.benchmarks;
+
+import com.mycompany.millionareapp.GameRepository;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * Throughput / latency harness for GameRepository against a throwaway Derby
+ * database. Not a JMH benchmark: it drives the repository from N threads for a
+ * fixed time and reports ops/s and p50/p99/p999 per operation.
+ *
+ * What it does:
+ *  - creates a fresh database (in memory, or in a temp directory with --disk)
+ *  - pre-populates GAME_SESSION with --rows finished sessions over --players players
+ *  - warms up, then runs --threads threads for --seconds seconds, each looping
+ *    startSession, finishSession and every --top-every games a topSessions(--top-limit)
+ *    and a rankOfPlayer
+ *  - failed calls are counted per operation instead of stopping the run
+ *
+ * Usage (after mvn -Pjmh package):
+ *   java -cp target/benchmarks.jar com.mycompany.millionareapp.benchmarks.PersistenceBenchmark \
+ *        --rows 1000000 --threads 8 --seconds 30 [--disk] [--pool 8]
+ */
+public final class PersistenceBenchmark {
+
+    private static final int[] PRIZES = {0, 100, 200, 300, 500, 1000, 2000, 4000, 8000,
+        16000, 32000, 64000, 125000, 250000, 500000, 1000000};
+
+    private PersistenceBenchmark() { }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parse(args);
+        int rows = Integer.parseInt(opts.getOrDefault("rows", "100000"));
+        int players = Integer.parseInt(opts.getOrDefault("players", "1000"));
+        int threads = Integer.parseInt(opts.getOrDefault("threads", "4"));
+        int seconds = Integer.parseInt(opts.getOrDefault("seconds", "20"));
+        int warmup = Integer.parseInt(opts.getOrDefault("warmup", "5"));
+        int topEvery = Integer.parseInt(opts.getOrDefault("top-every", "10"));
+        int topLimit = Integer.parseInt(opts.getOrDefault("top-limit", "20"));
+        int poolSize = Integer.parseInt(opts.getOrDefault("pool", String.valueOf(threads)));
+        boolean disk = opts.containsKey("disk");
+
+        Path dir = null;
+        String dbPath;
+        if (disk) {
+            dir = Files.createTempDirectory("millionaire-bench");
+            dbPath = dir.resolve("db").toString();
+        } else {
+            dbPath = "memory:bench" + System.nanoTime();
+        }
+
+        System.out.printf("db=%s rows=%d players=%d threads=%d pool=%d seconds=%d%n",
+                disk ? dbPath : "in-memory", rows, players, threads, poolSize, seconds);
+
+        try (GameRepository repo = new GameRepository(dbPath, poolSize)) {
+            repo.ensureSchema();
+            long[] playerIds = new long[players];
+            for (int i = 0; i < players; i++) {
+                playerIds[i] = repo.ensurePlayer("bench-player-" + i);
+            }
+            long t0 = System.nanoTime();
+            populate(repo, playerIds, rows);
+            System.out.printf("populated %d sessions in %d ms%n", rows,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+            repo.loadLeaderboard();
+
+            run(repo, playerIds, threads, warmup, topEvery, topLimit); // warm-up, results thrown away
+            Recorder[] perThread = run(repo, playerIds, threads, seconds, topEvery, topLimit);
+            report(perThread, seconds);
+            System.out.println("pool: " + repo.poolStats());
+        } finally {
+            if (dir != null) {
+                deleteQuietly(dir);
+            }
+        }
+    }
+
+    // bulk-inserts finished sessions, committing every 10k rows
+    private static void populate(GameRepository repo, long[] playerIds, int rows) throws SQLException {
+        SplittableRandom rnd = new SplittableRandom(42);
+        Instant base = Instant.now().minusSeconds(rows);
+        try (Connection cn = repo.getConnection(); PreparedStatement ps = cn.prepareStatement(
+                "INSERT INTO GAME_SESSION (PLAYER_ID, WINNINGS, ELAPSED_SECONDS, STARTED_AT, FINISHED_AT) "
+                + "VALUES (?, ?, ?, ?, ?)")) {
+            cn.setAutoCommit(false);
+            for (int i = 0; i < rows; i++) {
+                Timestamp at = Timestamp.from(base.plusSeconds(i));
+                ps.setLong(1, playerIds[rnd.nextInt(playerIds.length)]);
+                ps.setInt(2, PRIZES[rnd.nextInt(PRIZES.length)]);
+                ps.setLong(3, rnd.nextInt(600));
+                ps.setTimestamp(4, at);
+                ps.setTimestamp(5, at);
+                ps.addBatch();
+                if ((i + 1) % 10_000 == 0) {
+                    ps.executeBatch();
+                    cn.commit();
+                }
+            }
+            ps.executeBatch();
+            cn.commit();
+        }
+    }
+
+    // runs the mixed workload on N threads for the given time
+    private static Recorder[] run(GameRepository repo, long[] playerIds, int threads, int seconds,
+            int topEvery, int topLimit) throws InterruptedException {
+        Recorder[] recorders = new Recorder[threads];
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1) + TimeUnit.SECONDS.toNanos(seconds);
+        for (int t = 0; t < threads; t++) {
+            Recorder r = new Recorder();
+            recorders[t] = r;
+            long seed = 1000L + t;
+            Thread th = new Thread(() -> {
+                SplittableRandom rnd = new SplittableRandom(seed);
+                try {
+                    start.await();
+                    for (int game = 0; System.nanoTime() < deadline; game++) {
+                        long player = playerIds[rnd.nextInt(playerIds.length)];
+                        // failed calls (lock timeouts etc.) are counted, not fatal
+                        long s = System.nanoTime();
+                        long session;
+                        try {
+                            session = repo.startSession(player);
+                            r.record("startSession", System.nanoTime() - s);
+                        } catch (RuntimeException e) {
+                            r.error("startSession", e);
+                            continue;
+                        }
+
+                        s = System.nanoTime();
+                        try {
+                            repo.finishSession(session, PRIZES[rnd.nextInt(PRIZES.length)],
+                                    rnd.nextInt(600), Instant.now());
+                            r.record("finishSession", System.nanoTime() - s);
+                        } catch (RuntimeException e) {
+                            r.error("finishSession", e);
+                        }
+
+                        if (game % topEvery == 0) {
+                            s = System.nanoTime();
+                            try {
+                                repo.topSessions(topLimit);
+                                r.record("topSessions", System.nanoTime() - s);
+                            } catch (RuntimeException e) {
+                                r.error("topSessions", e);
+                            }
+
+                            s = System.nanoTime();
+                            try {
+                                repo.rankOfPlayer("bench-player-" + rnd.nextInt(playerIds.length));
+                                r.record("rankOfPlayer", System.nanoTime() - s);
+                            } catch (RuntimeException e) {
+                                r.error("rankOfPlayer", e);
+                            }
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "bench-" + t);
+            th.start();
+        }
+        Thread.sleep(1000); // let every thread reach the latch
+        start.countDown();
+        done.await();
+        return recorders;
+    }
+
+    // merges the per-thread samples and prints one line per operation
+    private static void report(Recorder[] perThread, int seconds) {
+        Map<String, long[]> merged = new LinkedHashMap<>();
+        Map<String, Integer> errors = new LinkedHashMap<>();
+        Map<String, String> firstError = new LinkedHashMap<>();
+        for (Recorder r : perThread) {
+            r.errors.forEach((k, v) -> errors.merge(k, v, Integer::sum));
+            r.firstError.forEach(firstError::putIfAbsent);
+            for (Map.Entry<String, Samples> e : r.samples.entrySet()) {
+                long[] add = e.getValue().toArray();
+                merged.merge(e.getKey(), add, (a, b) -> {
+                    long[] out = Arrays.copyOf(a, a.length + b.length);
+                    System.arraycopy(b, 0, out, a.length, b.length);
+                    return out;
+                });
+            }
+        }
+        System.out.printf("%-14s %10s %8s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "errors", "ops/s", "p50(us)", "p99(us)", "p999(us)", "max(us)");
+        for (Map.Entry<String, long[]> e : merged.entrySet()) {
+            long[] v = e.getValue();
+            Arrays.sort(v);
+            System.out.printf("%-14s %10d %8d %10.0f %10.1f %10.1f %10.1f %10.1f%n",
+                    e.getKey(), v.length, errors.getOrDefault(e.getKey(), 0), (double) v.length / seconds,
+                    micros(percentile(v, 0.50)), micros(percentile(v, 0.99)),
+                    micros(percentile(v, 0.999)), micros(v[v.length - 1]));
+        }
+        firstError.forEach((op, msg) -> System.out.println("first " + op + " error: " + msg));
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int i = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+
+    // --key value / --flag style arguments
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> out = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("unexpected argument: " + args[i]);
+            }
+            String key = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                out.put(key, args[++i]);
+            } else {
+                out.put(key, "true");
+            }
+        }
+        return out;
+    }
+
+    private static void deleteQuietly(Path dir) {
+        try (var walk = Files.walk(dir)) {
+            List<Path> paths = new ArrayList<>(walk.toList());
+            paths.sort((a, b) -> b.getNameCount() - a.getNameCount());
+            for (Path p : paths) {
+                Files.deleteIfExists(p);
+            }
+        } catch (IOException ignore) {
+            // temp directory, the OS will clean it up eventually
+        }
+    }
+
+    // per-thread latency samples, one growable array per operation
+    private static final class Recorder {
+        final Map<String, Samples> samples = new LinkedHashMap<>();
+        final Map<String, Integer> errors = new LinkedHashMap<>();
+        final Map<String, String> firstError = new LinkedHashMap<>();
+
+        void record(String op, long nanos) {
+            samples.computeIfAbsent(op, k -> new Samples()).add(nanos);
+        }
+
+        void error(String op, RuntimeException e) {
+            errors.merge(op, 1, Integer::sum);
+            Throwable root = e;
+            while (root.getCause() != null) {
+                root = root.getCause();
+            }
+            firstError.putIfAbsent(op, root.getMessage());
+        }
+    }
+
+    private static final class Samples {
+        long[] values = new long[1024];
+        int size;
+
+        void add(long v) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = v;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
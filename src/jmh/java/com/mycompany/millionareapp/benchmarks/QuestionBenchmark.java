@@ -0,0 +1,106 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp.benchmarks;
+
+import com.mycompany.millionareapp.FileQuestionRepository;
+import com.mycompany.millionareapp.Question;
+import com.mycompany.millionareapp.QuestionBank;
+import com.mycompany.millionareapp.QuestionPackLoader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * Question.toString and loading question files of different sizes with
+ * FileQuestionRepository.loadAll, against opening the compiled snapshot and
+ * reading the first question (loadCompiled, snapshot already built), and
+ * loading a directory of packs on fork-join pools of different sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class QuestionBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class OneQuestion {
+        Question q = SyntheticBanks.question(7);
+    }
+
+    @State(Scope.Benchmark)
+    public static class QuestionFile {
+        @Param({"15", "10000", "1000000"})
+        public int lines;
+
+        Path file;
+
+        @Setup(Level.Trial)
+        public void write() throws IOException {
+            file = SyntheticBanks.file(lines);
+            new FileQuestionRepository(file).loadCompiled(); // build the snapshot once
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class PackDirectory {
+        @Param({"1", "2", "4", "8"})
+        public int parallelism;
+
+        Path dir;
+        ForkJoinPool pool;
+
+        @Setup(Level.Trial)
+        public void write() throws IOException {
+            dir = SyntheticBanks.packs(16, 62_500); // 1M questions
+            pool = new ForkJoinPool(parallelism);
+        }
+
+        @TearDown(Level.Trial)
+        public void shutdown() {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String questionToString(OneQuestion s) {
+        return s.q.toString();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public QuestionBank loadAll(QuestionFile f) throws IOException {
+        return new FileQuestionRepository(f.file).loadAll();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Question loadCompiledFirstQuestion(QuestionFile f) throws IOException {
+        return new FileQuestionRepository(f.file).loadCompiled().getByNumber(1);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public QuestionBank loadPacks(PackDirectory d) throws IOException {
+        return new QuestionPackLoader(d.dir, d.pool).loadAll();
+    }
+}
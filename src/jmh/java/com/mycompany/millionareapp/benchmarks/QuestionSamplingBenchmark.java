@@ -0,0 +1,70 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp.benchmarks;
+
+import com.mycompany.millionareapp.GameRepository;
+import com.mycompany.millionareapp.Question;
+import com.mycompany.millionareapp.QuestionImport;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * Game start latency against the size of QUESTION (in-memory Derby).
+ * sampleGame picks one game's 15 questions with the (TIER, RAND_KEY) index and
+ * should stay flat as the table grows; findAllQuestions is what loading the
+ * whole table for every start would cost, for comparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class QuestionSamplingBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private GameRepository repo;
+
+    @Setup(Level.Trial)
+    public void populate() {
+        repo = new GameRepository("memory:sampling" + System.nanoTime(), 4);
+        repo.ensureSchema();
+        new QuestionImport(repo, "bench", 20_000, null).run(SyntheticBanks.tieredBank(rows));
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        repo.close();
+    }
+
+    @Benchmark
+    public List<Question> sampleGame() {
+        return repo.sampleGame(15);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Question> findAllQuestions() {
+        return repo.findAllQuestions();
+    }
+}
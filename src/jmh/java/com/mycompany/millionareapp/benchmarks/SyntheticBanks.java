@@ -0,0 +1,89 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp.benchmarks;
+
+import com.mycompany.millionareapp.Question;
+import com.mycompany.millionareapp.QuestionBank;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * Builds made-up question banks and question files of any size for the
+ * benchmarks, so bank size is the only thing that changes between runs.
+ */
+public final class SyntheticBanks {
+
+    private SyntheticBanks() { /* utility class; no instances */ }
+
+    // question number i (0-based), correct answer cycles A..D
+    public static Question question(int i) {
+        return Question.of("Synthetic question number " + i + "?",
+                "Answer " + i + "A", "Answer " + i + "B", "Answer " + i + "C", "Answer " + i + "D",
+                i % 4);
+    }
+
+    // a read-only bank of n questions
+    public static QuestionBank bank(int n) {
+        List<Question> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            out.add(question(i));
+        }
+        return QuestionBank.copyOf(out);
+    }
+
+    // n questions tagged with tiers 1..15 in turn, made on demand (nothing is held in memory)
+    public static QuestionBank tieredBank(int n) {
+        return new QuestionBank(List.of()) {
+            @Override
+            public int size() {
+                return n;
+            }
+
+            @Override
+            public Question getByNumber(int number) {
+                Question q = question(number - 1);
+                return Question.of(0L, 1 + (number - 1) % 15, q.getQuestion(), q.getOption(0).getText(),
+                        q.getOption(1).getText(), q.getOption(2).getText(), q.getOption(3).getText(),
+                        q.getCorrectAnswer());
+            }
+        };
+    }
+
+    // a questions.txt style file with n records (ID|QUESTION|A|B|C|D|CORRECT)
+    public static Path file(int n) throws IOException {
+        Path p = Files.createTempFile("questions-" + n + "-", ".txt");
+        write(p, 0, n);
+        return p;
+    }
+
+    // a temp directory of pack files, each with perFile records (IDs don't repeat across packs)
+    public static Path packs(int files, int perFile) throws IOException {
+        Path dir = Files.createTempDirectory("packs-");
+        dir.toFile().deleteOnExit();
+        for (int f = 0; f < files; f++) {
+            write(dir.resolve(String.format("pack-%03d.txt", f)), f * perFile, perFile);
+        }
+        return dir;
+    }
+
+    private static void write(Path p, int first, int n) throws IOException {
+        p.toFile().deleteOnExit();
+        try (BufferedWriter w = Files.newBufferedWriter(p, StandardCharsets.UTF_8)) {
+            for (int i = first; i < first + n; i++) {
+                w.write("Q" + i + "|Synthetic question number " + i + "?|Answer " + i + "A|Answer "
+                        + i + "B|Answer " + i + "C|Answer " + i + "D|" + (char) ('A' + i % 4));
+                w.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * What this class does:
+ *  - Turns a questions text file into a compact binary snapshot once, and then
+ *    opens that snapshot with a memory map on every later launch.
+ *  - Questions are only decoded when asked for by number, so opening a bank of a
+ *    million questions costs the same as opening one with fifteen.
+ *  - The snapshot remembers the size and last-modified time of the text file it
+ *    came from, so FileQuestionRepository can tell when it needs rebuilding.
+ *  - Every question gets a stable id made from its ID in the file (fileQuestionId),
+ *    so seen filters and checkpoints can tell questions apart without a database.
+ *    These ids are negative, so they are never mistaken for a QUESTION.ID.
+ *
+ * File layout (big-endian):
+ *   header (48 bytes)  magic, format version, question count, record size,
+ *                      source size, source modified time, table offset, blob offset
+ *   string blob        every stem/option as [int byte length][UTF-8 bytes]
+ *   offset table       one 32 byte record per question: five int blob offsets
+ *                      (stem, A, B, C, D), the correct index, the tier (0 = untagged),
+ *                      2 reserved bytes, then the question id (long)
+ */
+public class CompiledQuestionBank extends QuestionBank {
+
+    static final int MAGIC = 0x4D514231; // "MQB1"
+    static final int FORMAT_VERSION = 2;
+    static final int HEADER_SIZE = 48;
+    static final int RECORD_SIZE = 32;
+
+    private final ByteBuffer data;
+    private final int count;
+    private final int tableStart;
+
+    // wraps an already validated snapshot buffer
+    CompiledQuestionBank(ByteBuffer data) {
+        super(List.of());
+        this.data = data;
+        this.count = data.getInt(8);
+        this.tableStart = (int) data.getLong(32);
+    }
+
+    // this method memory-maps a snapshot file written by compile()
+    public static CompiledQuestionBank open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is not a question snapshot");
+            }
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (map.getInt(0) != MAGIC || map.getInt(4) != FORMAT_VERSION || map.getInt(12) != RECORD_SIZE) {
+                throw new IOException(file + " is not a question snapshot (or an older format)");
+            }
+            return new CompiledQuestionBank(map);
+        }
+    }
+
+    // true if the snapshot exists and was built from the source file as it is now
+    public static boolean isFresh(Path source, Path snapshot) throws IOException {
+        if (Files.notExists(snapshot) || Files.notExists(source) || Files.size(snapshot) < HEADER_SIZE) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        try (FileChannel ch = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && ch.read(header) > 0) { }
+        }
+        return header.getInt(0) == MAGIC
+                && header.getInt(4) == FORMAT_VERSION
+                && header.getLong(16) == Files.size(source)
+                && header.getLong(24) == Files.getLastModifiedTime(source).toMillis();
+    }
+
+    // this method parses the text file and writes a snapshot next to it (atomically replaced)
+    public static void compile(Path source, Path target) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+        try {
+            long sourceSize = Files.size(source);
+            long sourceModified = Files.getLastModifiedTime(source).toMillis();
+            int[] table;
+            int count;
+            long tableStart;
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ch.position(HEADER_SIZE);
+                BlobWriter blob = new BlobWriter(Channels.newOutputStream(ch));
+                QuestionFileParser.Report report = QuestionFileParser.parse(source,
+                        (line, id, q) -> blob.add(id, q));
+                if (report.hasErrors()) {
+                    throw new IllegalArgumentException(report.summary());
+                }
+                if (blob.failure != null) {
+                    throw blob.failure;
+                }
+                blob.out.flush();
+                table = blob.table;
+                count = blob.count;
+                tableStart = HEADER_SIZE + blob.size;
+
+                ByteBuffer rec = ByteBuffer.allocate(64 * 1024 - (64 * 1024) % RECORD_SIZE);
+                for (int i = 0; i < count; i++) {
+                    for (int f = 0; f < 5; f++) {
+                        rec.putInt(table[i * 7 + f]);
+                    }
+                    rec.put((byte) table[i * 7 + 5]).put((byte) table[i * 7 + 6]).put((byte) 0).put((byte) 0);
+                    rec.putLong(blob.ids[i]);
+                    if (!rec.hasRemaining()) {
+                        drain(ch, rec);
+                    }
+                }
+                drain(ch, rec);
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(count).putInt(RECORD_SIZE)
+                        .putLong(sourceSize).putLong(sourceModified)
+                        .putLong(tableStart).putLong(HEADER_SIZE);
+                header.flip();
+                while (header.hasRemaining()) {
+                    ch.write(header, header.position());
+                }
+                ch.force(true);
+            }
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            try { Files.deleteIfExists(tmp); } catch (IOException ignore) {}
+        }
+    }
+
+    private static void drain(FileChannel ch, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            ch.write(buf);
+        }
+        buf.clear();
+    }
+
+    // writes the string blob while parsing, remembering where each string went
+    private static final class BlobWriter {
+        final DataOutputStream out;
+        int[] table = new int[7 * 1024];
+        long[] ids = new long[1024];
+        int count;
+        long size;
+        IOException failure;
+
+        BlobWriter(OutputStream raw) {
+            this.out = new DataOutputStream(new BufferedOutputStream(raw, 64 * 1024));
+        }
+
+        void add(String id, Question q) {
+            if (failure != null) {
+                return;
+            }
+            try {
+                if ((count + 1) * 7 > table.length) {
+                    table = Arrays.copyOf(table, table.length * 2);
+                    ids = Arrays.copyOf(ids, ids.length * 2);
+                }
+                ids[count] = fileQuestionId(id);
+                int base = count * 7;
+                table[base] = put(q.getQuestion());
+                for (int i = 0; i < 4; i++) {
+                    table[base + 1 + i] = put(q.getOption(i).getText());
+                }
+                table[base + 5] = q.getCorrectAnswer();
+                table[base + 6] = q.getTier();
+                count++;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        int put(String s) throws IOException {
+            if (size > Integer.MAX_VALUE - HEADER_SIZE) {
+                throw new IOException("question snapshot is limited to 2 GB of text");
+            }
+            int offset = (int) size;
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            size += 4 + bytes.length;
+            return offset;
+        }
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    // the id a question from the text file goes by: a 64-bit hash of its file ID, made
+    // negative (and never 0) so it can't clash with a database id
+    static long fileQuestionId(String fileId) {
+        long h = 0xcbf29ce484222325L; // FNV-1a over the UTF-8 bytes
+        for (byte b : fileId.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL; // spread the bits (murmur finalizer)
+        h ^= h >>> 33;
+        long id = -(h & Long.MAX_VALUE);
+        return id == 0 ? -1L : id;
+    }
+
+    // decodes question n straight from the snapshot
+    @Override
+    public Question getByNumber(int index) {
+        int rec = record(index);
+        return Question.of(data.getLong(rec + 24), data.get(rec + 21),
+                string(data.getInt(rec)),
+                string(data.getInt(rec + 4)),
+                string(data.getInt(rec + 8)),
+                string(data.getInt(rec + 12)),
+                string(data.getInt(rec + 16)),
+                data.get(rec + 20));
+    }
+
+    // read straight from the offset table, no text decoded
+    @Override
+    public int tierOf(int index) {
+        return data.get(record(index) + 21);
+    }
+    @Override
+    public long idOf(int index) {
+        return data.getLong(record(index) + 24);
+    }
+    // the correct option of question n, read straight from the offset table
+    int correctOf(int index) {
+        return data.get(record(index) + 20);
+    }
+    private int record(int index) {
+        if (index < 1 || index > count) {
+            throw new IndexOutOfBoundsException("question size must be between 1 and " + count);
+        }
+        return tableStart + (index - 1) * RECORD_SIZE;
+    }
+
+    // one string from the blob
+    private String string(int blobOffset) {
+        return utf8At(data, HEADER_SIZE + blobOffset);
+    }
+
+    // decodes a [int byte length][UTF-8 bytes] string at an absolute position
+    // (also used by OffHeapQuestionBank, which stores its text the same way)
+    static String utf8At(ByteBuffer buf, int at) {
+        int len = buf.getInt(at);
+        byte[] bytes = new byte[len];
+        buf.get(at + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,456 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * What this class does:
+ *  - Keeps a small, bounded set of Derby connections open so the repository
+ *    doesn't pay for a brand new connection on every call.
+ *  - Hands out connections wrapped in a proxy: close() gives the connection back
+ *    to the pool instead of really closing it.
+ *  - Caches prepared statements per connection (keyed by the SQL text), so the
+ *    same SQL is only prepared once per connection. close() on a cached
+ *    statement just clears its parameters, and a statement a caller still has open
+ *    is never closed by the cache under it.
+ *  - Remembers who borrowed each connection and when, so connections that are
+ *    held for too long show up as suspected leaks. The borrowing call site is only
+ *    looked up when leak detection is on (a leak threshold of LEAK_DETECTION_OFF
+ *    turns it off), and then only the one frame it needs, never a full stack.
+ *  - Keeps simple stats (borrow wait time, active/idle counts, cache hits).
+ */
+public final class ConnectionPool implements AutoCloseable {
+
+    private static final int DEFAULT_STATEMENT_CACHE = 32;
+    // leak threshold that turns leak detection (and the call site lookup on every borrow) off
+    public static final long LEAK_DETECTION_OFF = -1;
+    // frames between the Borrow constructor and the code that asked for a connection:
+    // Borrow.<init>, borrow(), GameRepository.getConnection()
+    private static final int BORROW_FRAMES = 3;
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    private final String url;
+    private final int maxSize;
+    private final int statementCacheSize;
+    private final long borrowTimeoutMillis;
+    private final long leakThresholdMillis;
+
+    private final ArrayBlockingQueue<Connection> idle;
+    private final AtomicInteger created = new AtomicInteger();
+    private final Map<Connection, Borrow> borrowed = new ConcurrentHashMap<>();
+    private final Map<Connection, StatementCache> caches = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    // stats
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong borrowWaitNanos = new AtomicLong();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    // who has a connection and since when (the call site is only for leak reports, null when
+    // leak detection is off)
+    private static final class Borrow {
+        final long sinceNanos = System.nanoTime();
+        final StackWalker.StackFrame where;
+        final String thread = Thread.currentThread().getName();
+
+        Borrow(boolean traced) {
+            where = traced ? WALKER.walk(s -> s.skip(BORROW_FRAMES).findFirst().orElse(null)) : null;
+        }
+    }
+
+    // constructor with sensible defaults for the embedded database
+    public ConnectionPool(String url, int maxSize) {
+        this(url, maxSize, DEFAULT_STATEMENT_CACHE, 10_000, 30_000);
+    }
+
+    public ConnectionPool(String url, int maxSize, int statementCacheSize,
+            long borrowTimeoutMillis, long leakThresholdMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("pool size must be at least 1");
+        }
+        this.url = url;
+        this.maxSize = maxSize;
+        this.statementCacheSize = Math.max(0, statementCacheSize);
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+    }
+
+    // this method borrows a connection, opening a new one only if the pool isn't full yet
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        Connection raw = idle.poll();
+        if (raw == null) {
+            raw = tryCreate();
+        }
+        if (raw == null) {
+            try {
+                raw = idle.poll(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection", e);
+            }
+            if (raw == null) {
+                timeouts.incrementAndGet();
+                throw new SQLException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for a connection (" + describeLeaks() + ")");
+            }
+        }
+        long waited = System.nanoTime() - start;
+        borrows.incrementAndGet();
+        borrowWaitNanos.addAndGet(waited);
+        maxBorrowWaitNanos.accumulateAndGet(waited, Math::max);
+
+        borrowed.put(raw, new Borrow(leakThresholdMillis >= 0));
+        return wrap(raw);
+    }
+
+    // opens a new physical connection if we are still under the limit
+    private Connection tryCreate() throws SQLException {
+        while (true) {
+            int n = created.get();
+            if (n >= maxSize) {
+                return null;
+            }
+            if (created.compareAndSet(n, n + 1)) {
+                try {
+                    return DriverManager.getConnection(url);
+                } catch (SQLException e) {
+                    created.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // puts a connection back, resetting anything the caller changed
+    private void release(Connection raw) {
+        if (borrowed.remove(raw) == null) {
+            return; // closed twice, ignore
+        }
+        boolean healthy = true;
+        try {
+            if (!raw.getAutoCommit()) {
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            healthy = false;
+        }
+        StatementCache cache = caches.get(raw);
+        if (cache != null) {
+            cache.returned();
+        }
+        // closed is checked under the same lock close() drains with, so a connection can't
+        // slip into idle after the drain and stay open
+        synchronized (idle) {
+            if (healthy && !closed && idle.offer(raw)) {
+                return;
+            }
+        }
+        discard(raw);
+    }
+
+    // really closes a connection and frees its slot
+    private void discard(Connection raw) {
+        StatementCache cache = caches.remove(raw);
+        if (cache != null) {
+            cache.closeAll();
+        }
+        try {
+            raw.close();
+        } catch (SQLException ignore) {
+            // already broken, nothing else to do
+        }
+        created.decrementAndGet();
+    }
+
+    private Connection wrap(Connection raw) {
+        InvocationHandler h = new ConnectionHandler(raw);
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, h);
+    }
+
+    // gives back the list of connections that have been out longer than the leak threshold
+    public List<String> suspectedLeaks() {
+        List<String> out = new ArrayList<>();
+        if (leakThresholdMillis < 0) {
+            return out;
+        }
+        long now = System.nanoTime();
+        for (Borrow b : borrowed.values()) {
+            long heldMillis = TimeUnit.NANOSECONDS.toMillis(now - b.sinceNanos);
+            if (heldMillis >= leakThresholdMillis) {
+                String site = b.where != null ? b.where.toStackTraceElement().toString() : "unknown";
+                out.add(b.thread + " held a connection for " + heldMillis + " ms, borrowed at " + site);
+            }
+        }
+        return out;
+    }
+
+    private String describeLeaks() {
+        List<String> leaks = suspectedLeaks();
+        return leaks.isEmpty()
+                ? borrowed.size() + " in use, no suspected leaks"
+                : leaks.size() + " suspected leak(s): " + leaks.get(0);
+    }
+
+    // snapshot of the pool counters
+    public Stats stats() {
+        long n = borrows.get();
+        return new Stats(
+                maxSize,
+                borrowed.size(),
+                idle.size(),
+                created.get(),
+                n,
+                n == 0 ? 0 : borrowWaitNanos.get() / n,
+                maxBorrowWaitNanos.get(),
+                timeouts.get(),
+                statementHits.get(),
+                statementMisses.get(),
+                suspectedLeaks().size());
+    }
+
+    // closes every idle connection; borrowed ones are closed when they come back
+    @Override
+    public void close() {
+        List<Connection> drained = new ArrayList<>();
+        synchronized (idle) {
+            closed = true;
+            idle.drainTo(drained);
+        }
+        for (Connection c : drained) {
+            discard(c);
+        }
+    }
+
+    /**
+     * Pool counters at one point in time. Wait times are in nanoseconds.
+     */
+    public record Stats(int maxSize, int active, int idle, int open,
+            long borrows, long avgBorrowWaitNanos, long maxBorrowWaitNanos, long timeouts,
+            long statementHits, long statementMisses, int suspectedLeaks) {
+
+        @Override
+        public String toString() {
+            return "active=" + active + " idle=" + idle + " open=" + open + "/" + maxSize
+                    + " borrows=" + borrows
+                    + " avgWait=" + TimeUnit.NANOSECONDS.toMicros(avgBorrowWaitNanos) + "us"
+                    + " maxWait=" + TimeUnit.NANOSECONDS.toMicros(maxBorrowWaitNanos) + "us"
+                    + " timeouts=" + timeouts
+                    + " stmtHits=" + statementHits + " stmtMisses=" + statementMisses
+                    + " leaks=" + suspectedLeaks;
+        }
+    }
+
+    // LRU cache of prepared statements for one physical connection. A statement that is
+    // still checked out when it is evicted is only closed once its caller closes it (or
+    // the connection comes back to the pool)
+    private final class StatementCache {
+        private final LinkedHashMap<String, Cached> map =
+                new LinkedHashMap<>(16, 0.75f, true);
+        private final List<Cached> orphans = new ArrayList<>(); // evicted while checked out
+
+        // a cached statement and whether a caller has it right now
+        private final class Cached {
+            final PreparedStatement ps;
+            boolean out;
+            boolean evicted;
+
+            Cached(PreparedStatement ps) {
+                this.ps = ps;
+            }
+        }
+
+        PreparedStatement get(Connection raw, Connection owner, String key, String sql,
+                int generatedKeys) throws SQLException {
+            Cached c = map.get(key);
+            if (c != null && !c.out && !c.ps.isClosed()) {
+                statementHits.incrementAndGet();
+                c.out = true;
+                return checkedOut(c, owner);
+            }
+            statementMisses.incrementAndGet();
+            PreparedStatement ps = generatedKeys >= 0
+                    ? raw.prepareStatement(sql, generatedKeys)
+                    : raw.prepareStatement(sql);
+            Cached fresh = new Cached(ps);
+            fresh.out = true;
+            if (c != null && c.out) {
+                // the same SQL is already open, so this one isn't cached and really closes
+                fresh.evicted = true;
+                orphans.add(fresh);
+                return checkedOut(fresh, owner);
+            }
+            map.put(key, fresh);
+            if (map.size() > statementCacheSize) {
+                var eldest = map.entrySet().iterator();
+                Cached old = eldest.next().getValue();
+                eldest.remove();
+                old.evicted = true;
+                if (old.out) {
+                    orphans.add(old);
+                } else {
+                    closeQuietly(old.ps);
+                }
+            }
+            return checkedOut(fresh, owner);
+        }
+
+        // a cached statement whose close() only resets it for the next caller, and whose
+        // getConnection() gives back the pooled connection rather than the physical one
+        private PreparedStatement checkedOut(Cached c, Connection owner) {
+            PreparedStatement ps = c.ps;
+            boolean[] closedByCaller = new boolean[1];
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    (proxy, m, args) -> {
+                        switch (m.getName()) {
+                            case "close" -> {
+                                if (closedByCaller[0]) {
+                                    return null;
+                                }
+                                closedByCaller[0] = true;
+                                c.out = false;
+                                if (c.evicted) {
+                                    orphans.remove(c);
+                                    ps.close();
+                                } else {
+                                    ps.clearParameters();
+                                    ps.clearBatch();
+                                }
+                                return null;
+                            }
+                            case "isClosed" -> {
+                                return closedByCaller[0] || ps.isClosed();
+                            }
+                            case "getConnection" -> {
+                                return owner;
+                            }
+                            case "equals" -> {
+                                return proxy == args[0];
+                            }
+                            case "hashCode" -> {
+                                return System.identityHashCode(proxy);
+                            }
+                            default -> {
+                                try {
+                                    return m.invoke(ps, args);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                            }
+                        }
+                    });
+        }
+
+        // the connection is back in the pool, so nothing its borrower prepared is still in use
+        void returned() {
+            for (Cached c : orphans) {
+                closeQuietly(c.ps);
+            }
+            orphans.clear();
+            for (Cached c : map.values()) {
+                c.out = false;
+            }
+        }
+
+        void closeAll() {
+            returned();
+            for (Cached c : map.values()) {
+                closeQuietly(c.ps);
+            }
+            map.clear();
+        }
+
+        private void closeQuietly(PreparedStatement ps) {
+            try {
+                ps.close();
+            } catch (SQLException ignore) {
+                // evicted or the connection is going away, nothing to report
+            }
+        }
+    }
+
+    // proxy behaviour for a borrowed connection
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection raw;
+        private boolean returned;
+
+        ConnectionHandler(Connection raw) {
+            this.raw = raw;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+            String name = m.getName();
+            switch (name) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        release(raw);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || raw.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled[" + raw + "]";
+                }
+                default -> { }
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (name.equals("prepareStatement") && statementCacheSize > 0 && args != null
+                    && (args.length == 1 || (args.length == 2 && args[1] instanceof Integer))) {
+                String sql = (String) args[0];
+                int keys = args.length == 2 ? (Integer) args[1] : -1;
+                StatementCache cache = caches.computeIfAbsent(raw, c -> new StatementCache());
+                return cache.get(raw, (Connection) proxy, keys + ":" + sql, sql, keys);
+            }
+            try {
+                return m.invoke(raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
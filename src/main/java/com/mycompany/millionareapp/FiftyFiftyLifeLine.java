@@ -32,7 +32,20 @@ public class FiftyFiftyLifeLine {
     
     // this method hides 2 incorrect options to give the player two options to choose from
     public int[] hidingQuestions(Question q){
-        if(Used5050 || q == null){
+        if(Used5050){
+            return new int[0];
+        }
+        int[] hide = incorrectPair(q);
+        if(hide.length == 2){
+            Used5050 = true;
+        }
+        return hide;
+    }
+    
+    // the first two incorrect options of a question, without touching any "used" flag
+    // (GameEngine keeps that flag in the GameState instead)
+    public static int[] incorrectPair(Question q){
+        if(q == null){
             return new int[0];
         }
         
@@ -45,7 +58,6 @@ public class FiftyFiftyLifeLine {
             }
         }
         if(count == 2){
-            Used5050 = true;
             return hideQuestion;
         }
         return new int[0];
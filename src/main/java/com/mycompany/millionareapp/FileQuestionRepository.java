@@ -10,9 +10,13 @@ package com.mycompany.millionareapp;
  */
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 
 /*
  * File-backed question loader (preserves order)
@@ -24,6 +28,15 @@ import java.util.List;
  * - Parses each record into a Question with exactly 4 AnswerOption objects.
  * - Identifies the correct option by index (0..3).
  * - Returns a populated QuestionBank in the file order.
+ * - Parsing is done by QuestionFileParser, which streams the file instead of reading
+ *   every line into memory first and reports every bad line, not just the first one.
+ * - loadCompiled() keeps a binary snapshot next to the text file (questions.qbin) and
+ *   memory-maps it instead of re-parsing; the snapshot is rebuilt when the text changes.
+ *   The GUI no longer starts from it (the database is kept in step by syncQuestions,
+ *   which doesn't parse an unchanged file at all), it is for playing straight from
+ *   the file without Derby: tools, benchmarks and LazyQuestionBank.fromSnapshot.
+ * - fingerprint() hashes the file so GameRepository.syncQuestions can skip parsing when
+ *   the database already matches it.
  */
  
 public class FileQuestionRepository {
@@ -38,46 +51,61 @@ public class FileQuestionRepository {
         this.p = p;
     }
     // this method loads all the contents from the questions file where all the projects questions
-    // are stored
+    // are stored, if any line is malformed it throws with the full list of bad lines
     public QuestionBank loadAll() throws IOException {
-        List<String> lines = FileManager.readAllLines(p);
         QuestionBank b = new QuestionBank();
-        int lineNumber = 0;
-        
-        for(String raw : lines){
-            lineNumber++;
-            String l = raw.trim();
-            
-            if(l.isEmpty() || l.startsWith("#")) continue;
-            
-            String[] parse = l.split("\\|", -1);
-            if(parse.length != 7) {
-                throw new IllegalArgumentException
-                        ("questions.txt line: "+lineNumber+ 
-                        ", expected only 7 fields (ID|QUESTION|A|B|C|D|CORRECT)");
-            }
-            
-            String Stem = parse[1].trim();
-            String A = parse[2].trim();
-            String B = parse[3].trim();
-            String C = parse[4].trim();
-            String D = parse[5].trim();
-            String correctOption = parse[6].trim();
-            
-            if(correctOption.length() != 1){
-                throw new IllegalArgumentException("questions.txt line: " +lineNumber+
-                        ", CORRECT must be either A, B, C or D");
+        QuestionFileParser.Report report = forEach((line, id, q) -> b.add(q));
+        if(report.hasErrors()){
+            throw new IllegalArgumentException(report.summary());
+        }
+        return b;
+    }
+    // this method opens the compiled snapshot of the questions file, rebuilding it first
+    // if it is missing or the text file has changed since it was made
+    public QuestionBank loadCompiled() throws IOException {
+        Path snapshot = getSnapshotPath();
+        if (!CompiledQuestionBank.isFresh(p, snapshot)) {
+            if (Files.notExists(p)) {
+                return new QuestionBank();
             }
-            char character = Character.toUpperCase(correctOption.charAt(0));
-            
-            if(character < 'A' || character > 'D'){
-                throw new IllegalArgumentException("questions.txt line: " +lineNumber+
-                        ", CORRECT must be either A, B, C or D");
+            CompiledQuestionBank.compile(p, snapshot);
+        }
+        return CompiledQuestionBank.open(snapshot);
+    }
+    // where the compiled snapshot lives: questions.txt -> questions.qbin
+    public Path getSnapshotPath(){
+        String name = p.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return p.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".qbin");
+    }
+    // this method returns the SHA-256 of the questions file as hex (null if there is no file),
+    // cheap enough to run on every start so the database only re-syncs when the text changed
+    public String fingerprint() throws IOException {
+        if (Files.notExists(p)) {
+            return null;
+        }
+        MessageDigest sha;
+        try {
+            sha = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        byte[] buf = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(p)) {
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                sha.update(buf, 0, n);
             }
-            int correctIndex = character - 'A';
-            
-            b.add(Question.of(Stem, A, B, C, D, correctIndex));
-        }        
-        return b;
+        }
+        return HexFormat.of().formatHex(sha.digest());
+    }
+    // this method streams every question in the file to the handler without keeping them,
+    // bad lines are collected in the returned report instead of stopping the read
+    public QuestionFileParser.Report forEach(QuestionFileParser.Handler handler) throws IOException {
+        return QuestionFileParser.parse(p, handler);
+    }
+    // the file this repository reads
+    public Path getPath(){
+        return p;
     }
 }
@@ -5,7 +5,6 @@
 package com.mycompany.millionareapp;
 
 import java.time.Instant;
-import java.util.List;
 import javax.swing.JOptionPane;
 import java.time.Duration;
 
@@ -21,10 +20,16 @@ import java.time.Duration;
  * What this class does:
  *  - Acts as the MVC controller for the Swing app.
  *  - Connects GameUI (view) to GameEngine (rules) and GameRepository (Derby DB).
- *  - Starts a game session (ensure player, startSession), advances questions,
- *    checks answers, and finishes the session (finishSession).
+ *  - Starts a game session (ensure player, then a queued session start), advances
+ *    questions, checks answers, and queues the finished session. Session rows are
+ *    written by SessionWriteBehind in the background so the EDT never waits on Derby.
  *  - Applies lifelines (50/50, Reveal) and updates the UI accordingly.
  *  - Loads and shows the leaderboard, and handles simple navigation (menu/game).
+ *  - Checkpoints games in progress (SessionCheckpoints) and resumes a player's
+ *    unfinished game when they start again, even after a crash or quit.
+ *  - On very big question tables each game is sampled in the database instead, but
+ *    plays the same way: answers shuffled, seen questions avoided, checkpointed.
+ *  - Hands every engine it builds the extra listeners it was given (e.g. GameJournal).
  *  - Handles errors with friendly dialogs; no layout or SQL logic lives here.
  *  - Intended to be called on the Swing EDT.
  */
@@ -34,16 +39,57 @@ public class GUIController {
     private final GameUI ui;
     private GameEngine engine;
     private final GameRepository repo;
+    private final SessionWriteBehind sessions;
+    private final SessionCheckpoints checkpoints; // null = games aren't checkpointed
+    private final PrizeLadder ladder;
+    private final java.util.List<GameEngine.Listener> listeners = new java.util.ArrayList<>();
     private GameState state;
     private long playerId = -1L;
-    private long sessionId = -1L;
+    private SeenFilter seen;
+    private SessionWriteBehind.Session session;
     private Instant startedAt;
     
     // constructor for the GUI contoller
     public GUIController(GameUI ui, GameEngine engine, GameRepository repo) {
+        this(ui, engine, repo, new SessionWriteBehind(repo));
+    }
+    // constructor with a shared session writer
+    public GUIController(GameUI ui, GameEngine engine, GameRepository repo, SessionWriteBehind sessions) {
+        this(ui, engine, repo, sessions, null);
+    }
+    // constructor that also checkpoints games so they survive a restart
+    public GUIController(GameUI ui, GameEngine engine, GameRepository repo, SessionWriteBehind sessions,
+            SessionCheckpoints checkpoints) {
+        this(ui, engine, repo, sessions, checkpoints, PrizeLadder.classic());
+    }
+    // constructor for games played on another prize ladder (e.g. one from data/ladders.txt)
+    public GUIController(GameUI ui, GameEngine engine, GameRepository repo, SessionWriteBehind sessions,
+            SessionCheckpoints checkpoints, PrizeLadder ladder) {
+        if (ladder == null) throw new NullPointerException("ladder");
         this.ui = ui;
         this.engine = engine;
         this.repo = repo;
+        this.sessions = sessions;
+        this.checkpoints = checkpoints;
+        this.ladder = ladder;
+        if (engine != null && checkpoints != null) {
+            engine.addListener(checkpoints);
+        }
+    }
+    
+    // this method adds a listener to the current engine and every engine built after it
+    public void addEngineListener(GameEngine.Listener listener) {
+        listeners.add(listener);
+        if (engine != null) {
+            engine.addListener(listener);
+        }
+    }
+    // helper method that hooks a freshly built engine up to the listeners
+    private GameEngine listened(GameEngine e) {
+        for (GameEngine.Listener l : listeners) {
+            e.addListener(l);
+        }
+        return e;
     }
     
     // start method
@@ -77,21 +123,54 @@ public class GUIController {
         
         try{
             playerId = repo.ensurePlayer(playerName);
-            sessionId = repo.startSession(playerId);
-            startedAt = Instant.now();  
-            
-            List<Question> questions = repo.findAllQuestions();
-                        
-            if(questions.isEmpty()){
-                ui.setQuestionText("No questions in database");
-                return;
-            } 
+            String name = playerName.trim();
+            seen = repo.seenFilter(playerId);
+            GameState resumed = null;
             
-            QuestionBank bank = new QuestionBank();
-            for (Question q : questions) bank.add(q);
-            
-            this.engine = new GameEngine(bank);
-            this.state = this.engine.startGame(playerName);
+            if(repo.liveQuestionCount() >= GameRepository.SAMPLE_THRESHOLD){
+                // very big question tables: let the database pick this game's questions
+                // instead of loading (and keeping) the whole table. A saved game gets the
+                // questions it was dealt back by id
+                long[] savedIds = checkpoints == null ? null : checkpoints.savedQuestionIds(name);
+                if(savedIds != null){
+                    this.engine = sampledEngine(repo.findQuestions(savedIds));
+                    resumed = checkpoints.resume(name, this.engine);
+                }
+                if(resumed == null){
+                    this.engine = sampledEngine(repo.sampleGame(ladder.size(), seen));
+                }
+            } else {
+                // shared snapshot, only reloaded when the QUESTION table changes
+                QuestionSnapshot questions = repo.questionSnapshot();
+                            
+                if(questions.isEmpty()){
+                    ui.setQuestionText("No questions in database");
+                    return;
+                } 
+                
+                // one engine per snapshot, shared by every game played from it
+                if(this.engine == null || this.engine.getQuestionBank() != questions.getBank()
+                        || this.engine.getLadder() != ladder){
+                    // every game gets one random question per tier from the shared bank,
+                    // answers shuffled; a game only holds its 15 bank numbers and answer orders
+                    QuestionBank bank = questions.getBank();
+                    this.engine = listened(new GameEngine(bank, ladder, TieredQuestionPools.of(bank, ladder.size()), true));
+                    if(checkpoints != null){
+                        this.engine.addListener(checkpoints);
+                    }
+                }
+                // an unfinished game from before (crash, quit, back to menu) carries on
+                resumed = checkpoints == null ? null : checkpoints.resume(name, this.engine);
+            }
+            SessionCheckpoints.SavedSession saved = resumed == null ? null : checkpoints.sessionOf(resumed);
+            this.state = resumed != null ? resumed : this.engine.startGame(name, seen);
+            if (saved != null) {
+                // carry on the session row the game was started under
+                session = sessions.resume(playerId, saved.sessionId(), saved.startedAt());
+                startedAt = session.getStartedAt();
+            } else {
+                startSession();
+            }
             
             refreshQuestionView();           
             ui.showGame();
@@ -105,6 +184,36 @@ public class GUIController {
         
     }
     
+    // helper method that builds the engine for one sampled game: the bank is just that game's
+    // questions, each in a tier of its own so they're asked in the order given, with the same
+    // answer shuffling, listeners and checkpoints as games from the shared snapshot
+    private GameEngine sampledEngine(java.util.List<Question> dealt) {
+        QuestionBank bank = new QuestionBank();
+        for (int i = 0; i < dealt.size(); i++) {
+            Question q = dealt.get(i);
+            bank.add(Question.of(q.getId(), i + 1, q.getQuestion(), q.getOption(0).getText(),
+                    q.getOption(1).getText(), q.getOption(2).getText(), q.getOption(3).getText(),
+                    q.getCorrectAnswer()));
+        }
+        GameEngine e = listened(new GameEngine(bank, ladder, TieredQuestionPools.of(bank, ladder.size()), true));
+        if(checkpoints != null){
+            e.addListener(checkpoints);
+        }
+        return e;
+    }
+    
+    // helper method that queues a new session for the current game and, once its row has
+    // an id, records it in the game's checkpoint so a resumed game finishes the same row
+    private void startSession() {
+        session = sessions.start(playerId);
+        startedAt = session.getStartedAt();
+        if (checkpoints != null) {
+            GameState game = state;
+            Instant started = startedAt;
+            session.id().thenAccept(id -> checkpoints.attachSession(game, id, started));
+        }
+    }
+    
     // this method controls how answers are checked
     public void submitAnswer(int optionIndex) {
         if (engine == null || state == null) return;
@@ -115,12 +224,27 @@ public class GUIController {
             if (engine.gameIsOver(state)) {
                 int  winnings = engine.currentPrizeGet(state);
                 long elapsed  = Duration.between(startedAt, Instant.now()).getSeconds();
+                // the rank is read before the finish is queued, counting this game, so the answer
+                // doesn't depend on whether the writer got to it yet. It only ever costs the
+                // summary its rank text, never the finished game
+                RankIndex.Rank rank = null;
                 try {
-                    repo.finishSession(sessionId, winnings, elapsed, Instant.now());
-                } catch (Exception ignore) {
-                    // If finishing fails, still show result
+                    rank = repo.rankOfNewGame(winnings);
+                } catch (Exception ex) {
+                    System.err.println("Rank lookup failed: " + ex.getMessage());
                 }
-                ui.showSummary("Game over! You won $" + winnings);
+                try {
+                    engine.markSeen(state, seen);
+                    sessions.finish(session, winnings, elapsed, Instant.now(), state.getLifelineUses(), seen);
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(ui,
+                            "Could not save this game:\n" + ex.getMessage(),
+                            "Database Error", JOptionPane.ERROR_MESSAGE);
+                }
+                String rankText = rank == null ? "" : String.format(
+                        " - ranked #%d of %d (better than %.0f%% of games)",
+                        rank.rank(), rank.total(), rank.percentile());
+                ui.showSummary("Game over! You won $" + winnings + rankText);
                 return;
             }
 
@@ -176,8 +300,12 @@ public class GUIController {
         }
         ui.showLeaderboard();
     }
-    // this method brings you back to the menu UI
+    // this method brings you back to the menu UI, an unfinished game is kept to resume later
     public void backToMenu() {
+        if (checkpoints != null && state != null && !state.getGameOver()) {
+            checkpoints.leave(state);
+            state = null;
+        }
         ui.showMenu();
     }
     // this method refreshed the questions each time you use a lifeline or get the answer correct
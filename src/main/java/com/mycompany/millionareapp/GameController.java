@@ -36,6 +36,8 @@ import java.util.ArrayList;
  *          [6] use Reveal Answer lifeline (if available)
  *          [7] save and exit to main menu
  *     - Delegate to engine for result of action (no game rules here).
+ *     - With SessionCheckpoints every action is checkpointed as it happens, so [7]
+ *       just leaves the game saved; the next New Game with that name offers to resume it.
  *     - Loop until engine says game is won or over.
  *     - On end: show final winnings; ask persistence to record high score.
  */
@@ -44,11 +46,20 @@ public class GameController {
     
     private final GameEngine engine;
     private final GamePersistance persistance;
+    private final SessionCheckpoints checkpoints; // null = games can't be saved
     private final Scanner input = new Scanner(System.in);
 
     public GameController(GameEngine engine, GamePersistance persistance){
+        this(engine, persistance, null);
+    }
+    // constructor for games that are checkpointed and can be saved with [7]
+    public GameController(GameEngine engine, GamePersistance persistance, SessionCheckpoints checkpoints){
         this.engine = engine;
         this.persistance = persistance;
+        this.checkpoints = checkpoints;
+        if(checkpoints != null){
+            engine.addListener(checkpoints);
+        }
     }
     // this method is for when a new game starts, includes the main menu UI
     public void run(){
@@ -82,7 +93,10 @@ public class GameController {
             return;
         }
 
-        GameState status = engine.startGame(playerName);
+        GameState status = resumeSaved(playerName);
+        if(status == null){
+            status = engine.startGame(playerName);
+        }
 
         if(engine.getCurrentQuestion(status) == null){
             System.out.println("No questions available. Please add some to questions.txt");
@@ -91,6 +105,23 @@ public class GameController {
 
         playLoop(status);
     }
+    // this method offers the player their saved game, null to start a new one
+    private GameState resumeSaved(String playerName){
+        if(checkpoints == null){
+            return null;
+        }
+        GameState saved = checkpoints.resume(playerName, engine);
+        if(saved == null){
+            return null;
+        }
+        System.out.print("You have a saved game at question " + saved.getQuestionNumber()
+                + " ($" + saved.getCurrentPrize() + "). Resume it? [y/n]: ");
+        if(input.nextLine().trim().equalsIgnoreCase("y")){
+            return saved;
+        }
+        checkpoints.remove(saved);
+        return null;
+    }
     // this method shows all the previous highscores 
     public void showHighScores(){
         System.out.println("\n=== Current High Scores ===");
@@ -136,12 +167,24 @@ public class GameController {
                 System.out.println(" " + (i + 1) + ") " + q.getOption(realIdx).getText());
             }
 
-            System.out.println("\nActions: [1-" + visible.size() + "]=Answer  [5]=50/50  [6]=LifeLine  (q=Quit to menu)");
+            System.out.println("\nActions: [1-" + visible.size() + "]=Answer  [5]=50/50  [6]=LifeLine"
+                    + (checkpoints != null ? "  [7]=Save & exit" : "") + "  (q=Quit to menu)");
             System.out.print("Choose: ");
             String s = input.nextLine().trim();
 
+            // Save and exit status, the game is already checkpointed up to here
+            if(s.equals("7") && checkpoints != null){
+                checkpoints.leave(status);
+                checkpoints.force();
+                System.out.println("Game saved. Enter the same name under New Game to carry on. Returning to menu...");
+                return;
+            }
+
             // Walk away ststus
             if(s.equalsIgnoreCase("q")){
+                if(checkpoints != null){
+                    checkpoints.remove(status);
+                }
                 int payout = status.getCurrentPrize();
                 persistance.appendHighScore(status.getName(), payout);
                 System.out.println("You walked away with $" + payout + ". Returning to menu...");
@@ -15,24 +15,123 @@ package com.mycompany.millionareapp;
   - Moves you forward on correct answers, or ends the game on a wrong one.
   - Keeps lifelines honest: you can use 50/50 and Reveal once each per game.
   - No printing here — just pure logic. The controller/UI handles all text.
+  - Holds no per-game state: everything about a game lives in its GameState, so one
+    engine (and one shared QuestionBank) can run any number of games at once.
+    Calls that change a GameState lock that GameState, so two clicks on the same
+    game can't both spend a lifeline.
+  - Optionally deals every game its own questions from TieredQuestionPools (one
+    random question per tier); without pools every game plays the bank in order.
+  - Can also shuffle the answers of every question per game. A deal is drawn from
+    one seed kept in the GameState, so startGame(name, seed) replays a game exactly.
+    The questions handed out are views over the shared bank in the game's answer
+    order, so answers and lifelines work in the order the player sees.
+  - Given a player's SeenFilter, deals around questions they have probably seen,
+    and markSeen() adds the ones a game showed.
+  - Tells Listeners about every game started, answer given and lifeline used,
+    while the game is still locked, so they see each game's changes in order.
  */
 
 public class GameEngine {
     
-    private final QuestionBank questionBank;
+    /**
+     * Told about every change the engine makes to a game. Calls for one game come in
+     * order and while it is locked, so a listener should be quick (no waiting on I/O).
+     */
+    public interface Listener {
+        default void started(GameEngine engine, GameState status) {}
+        // questionNumber is the question that was answered, status is already updated
+        default void answered(GameEngine engine, GameState status, int questionNumber, int chosen, boolean correct) {}
+        default void lifelineUsed(GameEngine engine, GameState status, LifelineUse use) {}
+    }
     
-    private LifeLine reveal = new LifeLine();
-    private FiftyFiftyLifeLine fifty = new FiftyFiftyLifeLine();
+    private final QuestionBank questionBank;
+    private final PrizeLadder ladder;
+    private final TieredQuestionPools pools; // null = every game plays the bank in order
+    private final boolean shuffleOptions;
+    private final java.util.List<Listener> listeners = new java.util.concurrent.CopyOnWriteArrayList<>();
     
     public GameEngine(QuestionBank questionBank){
+        this(questionBank, PrizeLadder.classic());
+    }
+    // constructor for games on a different prize ladder (e.g. a 10 question quick game)
+    public GameEngine(QuestionBank questionBank, PrizeLadder ladder){
+        this(questionBank, ladder, null);
+    }
+    // constructor for games dealt random questions per tier from the pools
+    public GameEngine(QuestionBank questionBank, PrizeLadder ladder, TieredQuestionPools pools){
+        this(questionBank, ladder, pools, false);
+    }
+    // constructor that also shows every game's answers in its own order
+    public GameEngine(QuestionBank questionBank, PrizeLadder ladder, TieredQuestionPools pools, boolean shuffleOptions){
+        if(pools != null && pools.getBank() != questionBank){
+            throw new IllegalArgumentException("pools were built for a different bank");
+        }
         this.questionBank = questionBank;
+        this.ladder = ladder;
+        this.pools = pools;
+        this.shuffleOptions = shuffleOptions;
+    }
+    // this method adds a listener for every game this engine plays
+    public void addListener(Listener listener){
+        listeners.add(java.util.Objects.requireNonNull(listener, "listener"));
+    }
+    public void removeListener(Listener listener){
+        listeners.remove(listener);
     }
-    // method to create a new game with the fresh lifelines
+    // method to create a new game, lifelines are tracked in the returned state
     public GameState startGame(String name){
-        this.reveal = new LifeLine();
-        this.fifty = new FiftyFiftyLifeLine();
-        return new GameState(name);
-
+        if((pools == null && !shuffleOptions) || questionBank.size() == 0){
+            return started(new GameState(name, ladder));
+        }
+        return startGame(name, java.util.concurrent.ThreadLocalRandom.current().nextLong());
+    }
+    // method to deal a game that avoids questions the player has probably seen
+    public GameState startGame(String name, SeenFilter seen){
+        if(pools == null || seen == null){
+            return startGame(name);
+        }
+        return startGame(name, java.util.concurrent.ThreadLocalRandom.current().nextLong(), seen);
+    }
+    // method to deal the game with this seed again: same questions, same answer order
+    public GameState startGame(String name, long seed){
+        return startGame(name, seed, null);
+    }
+    // same as above for a game dealt around a seen filter (it only replays with the filter
+    // as it was when the game was dealt)
+    public GameState startGame(String name, long seed, SeenFilter seen){
+        if(questionBank.size() == 0){
+            return started(new GameState(name, ladder));
+        }
+        java.util.SplittableRandom random = new java.util.SplittableRandom(seed);
+        int length = gameLength(ladder);
+        int[] order = pools == null ? null : pools.drawGame(random, length, seen);
+        byte[] options = null;
+        if(shuffleOptions){
+            options = new byte[length];
+            for(int i = 0; i < length; i++){
+                options[i] = OptionShuffle.random(random);
+            }
+        }
+        return started(new GameState(name, ladder, order, options, seed));
+    }
+    // helper method that tells the listeners about a new game
+    private GameState started(GameState status){
+        for(Listener l : listeners){
+            l.started(this, status);
+        }
+        return status;
+    }
+    // a game is as long as its ladder, or the bank if that is shorter
+    private int gameLength(PrizeLadder gameLadder){
+        return Math.min(questionBank.size(), gameLadder.size());
+    }
+    // the ladder games from this engine are played on
+    public PrizeLadder getLadder(){
+        return ladder;
+    }
+    // the bank this engine plays from
+    public QuestionBank getQuestionBank(){
+        return questionBank;
     }
     // method which returns the current question
     public Question getCurrentQuestion(GameState status){
@@ -40,12 +139,29 @@ public class GameEngine {
             return null;
         }
         
-        int index = status.getQuestionNumber();
+        int index = status.getBankNumber();
         
         if(index < 1 || index > questionBank.size()){
             return null;
         }
-        return questionBank.getByNumber(index);
+        Question q = OptionShuffle.view(questionBank.getByNumber(index), status.getOptionOrder());
+        // while the player thinks about this one, let lazy banks fetch the next one
+        int next = status.getBankNumber(status.getQuestionNumber() + 1);
+        if(next >= 1 && next <= questionBank.size()){
+            questionBank.prefetch(next);
+        }
+        return q;
+    }
+    // this method adds every question the game has shown to the player's seen filter
+    public void markSeen(GameState status, SeenFilter seen){
+        if(status == null || seen == null) return;
+        int last = Math.min(status.getQuestionNumber(), gameLength(status.getLadder()));
+        for(int n = 1; n <= last; n++){
+            int index = status.getBankNumber(n);
+            if(index >= 1 && index <= questionBank.size()){
+                seen.add(questionBank.idOf(index));
+            }
+        }
     }
     // method to check if game is over
     public boolean gameIsOver(GameState status){
@@ -62,7 +178,15 @@ public class GameEngine {
     
     public void answer(GameState status, int chosenQuestionIndex){
     
-        if(status == null || gameIsOver(status)) return;
+        if(status == null) return;
+        
+        synchronized(status){
+            answerLocked(status, chosenQuestionIndex);
+        }
+    }
+    
+    private void answerLocked(GameState status, int chosenQuestionIndex){
+        if(gameIsOver(status)) return;
         
         Question q = getCurrentQuestion(status);
         
@@ -77,61 +201,86 @@ public class GameEngine {
         }
         
         boolean correct = q.isCorrect(chosenQuestionIndex);
+        int answered = status.getQuestionNumber();
         
         if(correct){
             status.updatePrize();
             
-            boolean lastQuestion = (status.getQuestionNumber() >= questionBank.size());
+            boolean lastQuestion = (status.getQuestionNumber() >= gameLength(status.getLadder()));
             
             if(lastQuestion){
                 status.hasWon(); // resets the state as the player has won and 
-                                    // gets the final prize of $1,000,000
+                                    // gets the top prize of the ladder
             } else {
                 status.nextQuestion();
             }
         } else {
             status.gameOver();
-        }       
+        }
+        for(Listener l : listeners){
+            l.answered(this, status, answered, chosenQuestionIndex, correct);
+        }
     }
     
     //----------LifeLines-----------
     
     // this method reveals the correct answer like a lifeline
     public int revealCorrectAnswer(GameState status){
-        if(status == null || gameIsOver(status)){
+        if(status == null){
             return -1;
         }
-        
-        if(status.hasUsedLifeline() || reveal.isLifeLineUsed()){
+        synchronized(status){
+            return revealLocked(status);
+        }
+    }
+    
+    private int revealLocked(GameState status){
+        if(gameIsOver(status) || status.hasUsedLifeline()){
             return -1;
         }
         
         Question q = getCurrentQuestion(status);
-        int index = reveal.revealCorrectAnswer(q);
+        int index = LifeLine.correctAnswerOf(q);
         
         if(index != -1){
             status.setHasUsedLifeline(true);
+            lifelineUsed(status, new LifelineUse(LifelineUse.REVEAL, q.getId(),
+                    status.getQuestionNumber(), java.time.Instant.now()));
         }
         return index;
     }
     // this method hadles the logic for fiftyfifty lifelane. checks if it has been used, if not 
     // it removes half of the questions like a 5050 lifeline
     public int[] useFiftyFiftyLifeLine(GameState status){
-        if(status == null || gameIsOver(status)){
+        if(status == null){
             return new int[0];
         }
-        
-        if(status.hasUsed5050() || fifty.is5050Used()){
+        synchronized(status){
+            return fiftyLocked(status);
+        }
+    }
+    
+    private int[] fiftyLocked(GameState status){
+        if(gameIsOver(status) || status.hasUsed5050()){
             return new int[0];
         }
         
         Question q = getCurrentQuestion(status);
         
-        int[] hide = fifty.hidingQuestions(q);
+        int[] hide = FiftyFiftyLifeLine.incorrectPair(q);
         
         if(hide.length == 2){
             status.setHasUsed5050(true);
+            lifelineUsed(status, new LifelineUse(LifelineUse.FIFTY_FIFTY, q.getId(),
+                    status.getQuestionNumber(), java.time.Instant.now()));
         }
         return hide;
     }
+    // helper method that records a lifeline on the game and tells the listeners
+    private void lifelineUsed(GameState status, LifelineUse use){
+        status.recordLifeline(use);
+        for(Listener l : listeners){
+            l.lifelineUsed(this, status, use);
+        }
+    }
 }
@@ -0,0 +1,504 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * What this class does:
+ *  - Keeps the full history of every game (start, each answer, each lifeline, with
+ *    times) as an append-only binary log, without touching Derby.
+ *  - It is a GameEngine.Listener. The engine thread only encodes the event into an
+ *    in-memory buffer; a single background writer swaps that buffer for an empty
+ *    one and writes everything that piled up with one write call (group commit).
+ *  - fsync is batched: the writer forces the file every syncEvery batches (0 = only
+ *    when a segment is closed). sync() waits until everything logged so far is on
+ *    disk, for callers that need that.
+ *  - If the writer falls behind and the buffer fills up, logging blocks until there
+ *    is room (backpressure) instead of growing memory. An interrupt doesn't cut the
+ *    wait short; events logged after close() or a write failure are dropped and
+ *    counted (Stats.dropped) rather than stopping the game.
+ *  - The log is split into segments (journal-000001.log, ...) of about
+ *    segmentBytes; every open starts a new segment, so an old one is never
+ *    appended to after a crash.
+ *  - read() replays a journal directory in order. Each event carries a CRC, and a
+ *    segment's torn tail (the process died mid-write) ends that segment.
+ *
+ * Segment layout (big-endian): magic, format version, segment number, then events
+ * as [int body length][body][int CRC32 of body]; a body is type, time millis,
+ * game id and the fields of that event type.
+ */
+public final class GameJournal implements GameEngine.Listener, AutoCloseable {
+
+    static final int MAGIC = 0x4D474A31; // "MGJ1"
+    static final int FORMAT_VERSION = 1;
+    static final int SEGMENT_HEADER = 16;
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    public static final int DEFAULT_SYNC_EVERY = 16;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final int MAX_EVENT = 512;
+
+    private static final byte STARTED = 1;
+    private static final byte ANSWERED = 2;
+    private static final byte LIFELINE = 3;
+
+    /**
+     * One journal entry. gameId is picked when the game starts and is the same for
+     * all of its events.
+     */
+    public interface Event {
+        long timeMillis();
+        long gameId();
+    }
+    public record Started(long timeMillis, long gameId, String player, long seed, int questions) implements Event {
+    }
+    // chosen is the bank option (0-3) picked, whatever order the answers were shown in
+    public record Answered(long timeMillis, long gameId, int questionNumber, long questionId, int chosen,
+            boolean correct, int prize, boolean gameOver, boolean won) implements Event {
+    }
+    public record Lifeline(long timeMillis, long gameId, String name, int questionNumber, long questionId)
+            implements Event {
+    }
+
+    /**
+     * What read() found.
+     */
+    public record ReadReport(long events, int segments, int tornSegments) {
+    }
+
+    /**
+     * Writer counters. Times are in nanoseconds. dropped counts events that were never
+     * logged because the journal was closed or had failed.
+     */
+    public record Stats(long events, long batches, long syncs, long bytes, int maxBatchEvents,
+            long maxSyncNanos, int segments, long dropped) {
+    }
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final int syncEvery;
+    private final Thread writer;
+
+    // guarded by lock
+    private final Object lock = new Object();
+    private ByteBuffer active = ByteBuffer.allocate(BUFFER_BYTES);
+    private ByteBuffer spare = ByteBuffer.allocate(BUFFER_BYTES);
+    private int activeEvents;
+    private long logged;     // events put in the buffer
+    private long written;    // events handed to the OS
+    private long synced;     // events forced to disk
+    private boolean syncRequested;
+    private boolean closed;
+    private IOException failure;
+    private long events, batches, syncs, bytes, maxSyncNanos, dropped;
+    private int maxBatchEvents, segments;
+    private final CRC32 crc = new CRC32();
+
+    // writer thread only
+    private FileChannel channel;
+    private long segmentNumber;
+    private long segmentSize;
+    private int batchesSinceSync;
+
+    private GameJournal(Path dir, long segmentBytes, int syncEvery) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.syncEvery = syncEvery;
+        this.writer = new Thread(this::writeLoop, "journal-writer");
+        this.writer.setDaemon(true);
+    }
+
+    // this method opens a journal directory with the default segment size and fsync batching
+    public static GameJournal open(Path dir) throws IOException {
+        return open(dir, DEFAULT_SEGMENT_BYTES, DEFAULT_SYNC_EVERY);
+    }
+
+    // this method opens a journal directory and starts a new segment in it
+    public static GameJournal open(Path dir, long segmentBytes, int syncEvery) throws IOException {
+        if (segmentBytes < SEGMENT_HEADER + MAX_EVENT) {
+            throw new IllegalArgumentException("segmentBytes must be at least " + (SEGMENT_HEADER + MAX_EVENT));
+        }
+        if (syncEvery < 0) {
+            throw new IllegalArgumentException("syncEvery can't be negative");
+        }
+        Files.createDirectories(dir);
+        GameJournal j = new GameJournal(dir, segmentBytes, syncEvery);
+        List<Path> existing = segmentsIn(dir);
+        j.segmentNumber = existing.isEmpty() ? 0 : number(existing.get(existing.size() - 1));
+        j.rotate();
+        j.writer.start();
+        return j;
+    }
+
+    // closes the journal when the JVM exits (System.exit included)
+    public void installShutdownHook() {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                System.err.println("Journal close failed: " + e.getMessage());
+            }
+        }, "journal-shutdown"));
+    }
+
+    // ---------- GameEngine.Listener ----------
+
+    @Override
+    public void started(GameEngine engine, GameState status) {
+        long id = ThreadLocalRandom.current().nextLong();
+        if (id == 0) {
+            id = 1; // 0 means "not logged yet"
+        }
+        status.setJournalId(id);
+        byte[] name = truncated(status.getName(), 255);
+        append(STARTED, id, b -> b.putLong(status.getSeed()).put((byte) status.getLadder().size())
+                .put((byte) name.length).put(name));
+    }
+
+    @Override
+    public void answered(GameEngine engine, GameState status, int questionNumber, int chosen, boolean correct) {
+        long id = gameId(engine, status);
+        long questionId = questionId(engine, status, questionNumber);
+        int bankOption = OptionShuffle.toBank(status.optionOrderOf(questionNumber), chosen);
+        int flags = (status.getGameOver() ? 1 : 0) | (status.getHasWon() ? 2 : 0);
+        append(ANSWERED, id, b -> b.put((byte) questionNumber).putLong(questionId).put((byte) bankOption)
+                .put((byte) (correct ? 1 : 0)).put((byte) flags).putInt(status.getCurrentPrize()));
+    }
+
+    @Override
+    public void lifelineUsed(GameEngine engine, GameState status, LifelineUse use) {
+        long id = gameId(engine, status);
+        byte[] name = truncated(use.name(), 64);
+        append(LIFELINE, id, b -> b.put((byte) use.questionNumber()).putLong(use.questionId())
+                .put((byte) name.length).put(name));
+    }
+
+    // the game's id is kept on the game itself (a SessionStore keeps it in the slot), so every
+    // view of a game logs under one id; games never logged before get a start event first
+    private long gameId(GameEngine engine, GameState status) {
+        if (status.getJournalId() == 0) {
+            started(engine, status);
+        }
+        return status.getJournalId();
+    }
+
+    private static long questionId(GameEngine engine, GameState status, int questionNumber) {
+        int number = status.getBankNumber(questionNumber);
+        QuestionBank bank = engine.getQuestionBank();
+        return number >= 1 && number <= bank.size() ? bank.idOf(number) : 0L;
+    }
+
+    // ---------- writing ----------
+
+    // helper method that encodes one event into the active buffer, waiting while it is full
+    private void append(byte type, long gameId, Consumer<ByteBuffer> fields) {
+        long now = System.currentTimeMillis();
+        boolean interrupted = false;
+        synchronized (lock) {
+            try {
+                while (!closed && failure == null && active.remaining() < MAX_EVENT) {
+                    lock.notifyAll();
+                    try {
+                        lock.wait(10);
+                    } catch (InterruptedException e) {
+                        interrupted = true; // the writer is draining, finish logging first
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (closed || failure != null) {
+                dropped++;
+                return; // a journal that can't be written never stops a game
+            }
+            int start = active.position();
+            active.position(start + 4);
+            active.put(type).putLong(now).putLong(gameId);
+            fields.accept(active);
+            int length = active.position() - start - 4;
+            active.putInt(start, length);
+            crc.reset();
+            crc.update(active.array(), start + 4, length);
+            active.putInt((int) crc.getValue());
+            activeEvents++;
+            logged++;
+            if (activeEvents == 1) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    // this method blocks until every event logged before the call is forced to disk
+    public void sync() throws IOException {
+        synchronized (lock) {
+            long target = logged;
+            syncRequested = true;
+            lock.notifyAll();
+            while (synced < target && failure == null && writer.isAlive()) {
+                try {
+                    lock.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    // snapshot of the writer counters
+    public Stats stats() {
+        synchronized (lock) {
+            return new Stats(events, batches, syncs, bytes, maxBatchEvents, maxSyncNanos, segments, dropped);
+        }
+    }
+
+    public Path getDirectory() {
+        return dir;
+    }
+
+    // the background thread: swap buffers, write the batch, force it when it's time
+    private void writeLoop() {
+        try {
+            while (true) {
+                ByteBuffer batch;
+                int count;
+                long upTo;
+                boolean forceNow;
+                boolean last;
+                synchronized (lock) {
+                    while (activeEvents == 0 && !closed && !(syncRequested && synced < logged)) {
+                        lock.wait(100);
+                    }
+                    batch = active;
+                    active = spare;
+                    spare = batch;
+                    count = activeEvents;
+                    activeEvents = 0;
+                    upTo = logged;
+                    forceNow = syncRequested;
+                    syncRequested = false;
+                    last = closed;
+                    lock.notifyAll(); // room in the buffer again
+                }
+                batch.flip();
+                int size = batch.remaining();
+                if (size > 0) {
+                    if (segmentSize + size > segmentBytes && segmentSize > SEGMENT_HEADER) {
+                        rotate();
+                    }
+                    while (batch.hasRemaining()) {
+                        channel.write(batch);
+                    }
+                    segmentSize += size;
+                    batchesSinceSync++;
+                }
+                batch.clear();
+                boolean force = forceNow || last || (syncEvery > 0 && batchesSinceSync >= syncEvery);
+                long syncNanos = 0;
+                if (force && batchesSinceSync > 0) {
+                    long t0 = System.nanoTime();
+                    channel.force(false);
+                    syncNanos = System.nanoTime() - t0;
+                    batchesSinceSync = 0;
+                }
+                synchronized (lock) {
+                    written = upTo;
+                    if (force) {
+                        synced = upTo;
+                        if (syncNanos > 0) {
+                            syncs++;
+                            maxSyncNanos = Math.max(maxSyncNanos, syncNanos);
+                        }
+                    }
+                    if (count > 0) {
+                        events += count;
+                        batches++;
+                        bytes += size;
+                        maxBatchEvents = Math.max(maxBatchEvents, count);
+                    }
+                    lock.notifyAll();
+                    if (last && activeEvents == 0) {
+                        channel.close();
+                        return;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            synchronized (lock) {
+                failure = e;
+                lock.notifyAll();
+            }
+            System.err.println("Game journal stopped: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // closes the current segment (forced to disk) and starts the next one
+    private void rotate() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+        }
+        segmentNumber++;
+        Path file = dir.resolve(String.format("journal-%06d.log", segmentNumber));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(segmentNumber).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        segmentSize = SEGMENT_HEADER;
+        synchronized (lock) {
+            segments++;
+        }
+    }
+
+    // ---------- reading ----------
+
+    // this method replays every event in the directory, oldest segment first
+    public static ReadReport read(Path dir, Consumer<Event> sink) throws IOException {
+        long count = 0;
+        int torn = 0;
+        List<Path> files = segmentsIn(dir);
+        CRC32 crc = new CRC32();
+        for (Path file : files) {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (in.remaining() < SEGMENT_HEADER || in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION) {
+                torn++;
+                continue;
+            }
+            in.getLong();
+            while (in.remaining() >= 4) {
+                int length = in.getInt();
+                if (length < 17 || length > MAX_EVENT || in.remaining() < length + 4) {
+                    torn++;
+                    break;
+                }
+                int start = in.position();
+                crc.reset();
+                crc.update(in.array(), start, length);
+                if (in.getInt(start + length) != (int) crc.getValue()) {
+                    torn++;
+                    break;
+                }
+                sink.accept(decode(in));
+                in.position(start + length + 4);
+                count++;
+            }
+        }
+        return new ReadReport(count, files.size(), torn);
+    }
+
+    // this method returns every event in the directory, for small journals and tests
+    public static List<Event> readAll(Path dir) throws IOException {
+        List<Event> out = new ArrayList<>();
+        read(dir, out::add);
+        return out;
+    }
+
+    private static Event decode(ByteBuffer in) throws IOException {
+        byte type = in.get();
+        long time = in.getLong();
+        long gameId = in.getLong();
+        switch (type) {
+            case STARTED: {
+                long seed = in.getLong();
+                int questions = in.get() & 0xFF;
+                return new Started(time, gameId, string(in), seed, questions);
+            }
+            case ANSWERED: {
+                int number = in.get() & 0xFF;
+                long questionId = in.getLong();
+                int chosen = in.get();
+                boolean correct = in.get() != 0;
+                int flags = in.get();
+                return new Answered(time, gameId, number, questionId, chosen, correct, in.getInt(),
+                        (flags & 1) != 0, (flags & 2) != 0);
+            }
+            case LIFELINE: {
+                int number = in.get() & 0xFF;
+                long questionId = in.getLong();
+                return new Lifeline(time, gameId, string(in), number, questionId);
+            }
+            default:
+                throw new IOException("unknown journal event type " + type);
+        }
+    }
+
+    private static String string(ByteBuffer in) {
+        byte[] b = new byte[in.get() & 0xFF];
+        in.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] truncated(String s, int maxBytes) {
+        String t = s == null ? "" : s;
+        byte[] b = t.getBytes(StandardCharsets.UTF_8);
+        while (b.length > maxBytes) {
+            t = t.substring(0, t.length() - 1);
+            b = t.getBytes(StandardCharsets.UTF_8);
+        }
+        return b;
+    }
+
+    private static List<Path> segmentsIn(Path dir) throws IOException {
+        if (Files.notExists(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().matches("journal-\\d{6,}\\.log"))
+                    .sorted((a, b) -> Long.compare(number(a), number(b)))
+                    .toList();
+        }
+    }
+
+    private static long number(Path segment) {
+        String n = segment.getFileName().toString();
+        return Long.parseLong(n.substring("journal-".length(), n.length() - ".log".length()));
+    }
+}
@@ -23,26 +23,114 @@ import com.mycompany.millionareapp.Question;
  * 
  * this class handles the databse component of my project.
  * it creates the tables the first time you run the app, so there’s no manual setup.
- * Lets the game seed questions once (seedIfEmpty), reads questions in order (findAllQuestions),
+ * Lets the game seed questions once (seedIfEmpty) or keep them in step with the questions
+ * file (syncQuestions), bulk loads go through QuestionImport, reads questions in order (findAllQuestions),
  * makes sure a player exists and get their id (ensurePlayer), start/finish a play session 
  * (startSession, finishSession) and finally loads a simple leaderboard (topSessions)
  * 
+ * Connections come from a small ConnectionPool, so every method can still open and
+ * close a connection as before but the real Derby connection (and its prepared
+ * statements) get reused between calls.
+ * 
+ * Questions are also cached: questionSnapshot() loads the QUESTION table once and
+ * hands the same read-only snapshot to every game until a write to QUESTION bumps
+ * the question version. Large tables are snapshotted into an OffHeapQuestionBank, bigger
+ * ones into a LazyQuestionBank (only id, answer and tier in memory, text read by id when
+ * a game asks for it), and the very biggest are not loaded at all: sampleGame picks one
+ * game's questions with an indexed random key (RAND_KEY) and reads only those rows.
+ * 
+ * The leaderboard is kept in memory too (Leaderboard): it is loaded once with a
+ * FETCH FIRST query and then updated by finishSession, so showing it never sorts
+ * the whole GAME_SESSION table. A RankIndex (Fenwick tree over the prize ladder)
+ * is kept alongside it so "what is my rank" answers in O(log n) as well.
+ * 
+ * Player ids are cached by name, so a returning player costs no database work.
+ * New names go straight to an INSERT; if another session registered the same
+ * name first we just read the existing id back.
+ * 
+ * Lifeline usage is written to LIFELINE_USE together with the finished session
+ * and can be summarised per question or per tier (lifelineUsageByQuestion/ByTier).
+ * 
  */
 
-public class GameRepository {
+public class GameRepository implements AutoCloseable {
+    private static final int DEFAULT_POOL_SIZE = 4;
+    private static final int LEADERBOARD_SIZE = 100;
+    // question snapshots at least this big are kept off-heap (OffHeapQuestionBank),
+    // from LAZY_THRESHOLD on only their keys are loaded (LazyQuestionBank), and from
+    // SAMPLE_THRESHOLD on the GUI samples each game with sampleGame instead of loading a snapshot at all
+    static final int OFF_HEAP_THRESHOLD = 100_000;
+    static final int LAZY_THRESHOLD = 500_000;
+    public static final int SAMPLE_THRESHOLD = 5_000_000;
+    // questions whose text a lazy snapshot keeps cached
+    static final int LAZY_CACHE_SIZE = 4096;
+    // untagged questions are written with a tier 1..15 (the classic ladder) from their position,
+    // so sampleGame's per-tier seeks keep the file's difficulty order
+    static final int UNTAGGED_TIERS = 15;
+    private static final String SAMPLE_SQL = "SELECT ID, STEM, OPTA, OPTB, OPTC, OPTD, CORRECT, TIER FROM QUESTION "
+            + "WHERE TIER = ? AND RAND_KEY >= ? AND RETIRED = 0 ORDER BY RAND_KEY FETCH FIRST ? ROWS ONLY";
+    private static final int ENSURE_PLAYER_ATTEMPTS = 3;
+    // Derby's SQLState for a duplicate key / UNIQUE violation
+    private static final String DUPLICATE_KEY = "23505";
+    // secondary indexes on QUESTION {name, columns}; QuestionImport drops them around big loads
+    static final String[][] QUESTION_INDEXES = {
+        {"IDX_QUESTION_EXT_ID", "EXT_ID"}, // syncQuestions looks rows up by the ID used in the questions file
+        {"IDX_QUESTION_TIER_RAND", "TIER, RAND_KEY"}, // sampleGame seeks to a random key inside one tier
+    };
+    // APP_META key holding the SHA-256 of the questions file QUESTION was synced from
+    // (".v2" since untagged rows get tiers, so databases synced before then sync once more)
+    private static final String META_QUESTIONS_SHA256 = "questions.sha256.v2";
+    // QuestionImport key used by seedIfEmpty
+    private static final String SEED_IMPORT = "seed";
+
     private final String url;
+    private final ConnectionPool pool;
+    // bumped every time this repository changes the QUESTION table
+    private final java.util.concurrent.atomic.AtomicLong questionVersion =
+            new java.util.concurrent.atomic.AtomicLong();
+    private volatile QuestionSnapshot questionSnapshot;
+    private volatile long[] liveCount; // {question version, live QUESTION rows}
+    private final Leaderboard leaderboard = new Leaderboard(LEADERBOARD_SIZE);
+    private final RankIndex rankIndex = new RankIndex();
+    // finishSession holds the read side, reloading the in-memory stats holds the write side
+    private final java.util.concurrent.locks.ReadWriteLock statsLock =
+            new java.util.concurrent.locks.ReentrantReadWriteLock();
+    // names and open sessions we already know about, so finishSession can fill the leaderboard
+    private final java.util.Map<Long, String> playerNames = new java.util.concurrent.ConcurrentHashMap<>();
+    private final java.util.Map<Long, Long> openSessions = new java.util.concurrent.ConcurrentHashMap<>();
+    // name -> player id, plus counters for how well the cache is doing
+    private final java.util.Map<String, Long> playerIds = new java.util.concurrent.ConcurrentHashMap<>();
+    // each player's seen filter, read from PLAYER.SEEN the first time they play
+    private final java.util.Map<Long, SeenFilter> seenFilters = new java.util.concurrent.ConcurrentHashMap<>();
+    private final java.util.concurrent.atomic.LongAdder playerCacheHits = new java.util.concurrent.atomic.LongAdder();
+    private final java.util.concurrent.atomic.LongAdder playerCacheMisses = new java.util.concurrent.atomic.LongAdder();
+    private final java.util.concurrent.atomic.LongAdder playerDuplicateRetries = new java.util.concurrent.atomic.LongAdder();
     // constructor
     public GameRepository(String dbPath){
+        this(dbPath, DEFAULT_POOL_SIZE);
+    }
+    // constructor with a custom number of pooled connections
+    public GameRepository(String dbPath, int poolSize){
         this.url = "jdbc:derby:" + dbPath + ";create=true";
+        this.pool = new ConnectionPool(url, poolSize);
     }
-    // this method gets the connection to the database
+    // this method gets a pooled connection to the database (close it to give it back)
     public Connection getConnection() {
         try {
-            return DriverManager.getConnection(url);
+            return pool.borrow();
         } catch (SQLException e) {
             throw new IllegalStateException("Failed to open Derby connection: " + url, e);
         }
     }
+    // this method returns the current connection pool counters
+    public ConnectionPool.Stats poolStats() {
+        return pool.stats();
+    }
+    // this method closes all pooled connections
+    @Override
+    public void close() {
+        pool.close();
+    }
     // this method creates all the table and indexes if they are missing
     public void ensureSchema() {
         try (Connection cn = getConnection()) {
@@ -64,7 +152,32 @@ public class GameRepository {
       OPTB VARCHAR(512) NOT NULL,
       OPTC VARCHAR(512) NOT NULL,
       OPTD VARCHAR(512) NOT NULL,
-      CORRECT SMALLINT NOT NULL CHECK (CORRECT BETWEEN 0 AND 3)
+      CORRECT SMALLINT NOT NULL CHECK (CORRECT BETWEEN 0 AND 3),
+      EXT_ID VARCHAR(64),
+      SOURCE VARCHAR(64),
+      POS INTEGER,
+      RETIRED SMALLINT DEFAULT 0 NOT NULL,
+      TIER SMALLINT DEFAULT 0 NOT NULL,
+      RAND_KEY DOUBLE
+    )
+    """);
+            // databases made before questions were synced from the file don't have these yet
+            addColumnIfMissing(cn, "PLAYER", "SEEN", "BLOB(" + SeenFilter.BLOB_BYTES + ")");
+            addColumnIfMissing(cn, "QUESTION", "EXT_ID", "VARCHAR(64)");
+            addColumnIfMissing(cn, "QUESTION", "POS", "INTEGER");
+            addColumnIfMissing(cn, "QUESTION", "SOURCE", "VARCHAR(64)");
+            addColumnIfMissing(cn, "QUESTION", "RETIRED", "SMALLINT DEFAULT 0 NOT NULL");
+            addColumnIfMissing(cn, "QUESTION", "TIER", "SMALLINT DEFAULT 0 NOT NULL");
+            addColumnIfMissing(cn, "QUESTION", "RAND_KEY", "DOUBLE");
+            // every row needs a random key for sampleGame (Derby can't default a column to RANDOM())
+            try (Statement st = cn.createStatement()) {
+                st.executeUpdate("UPDATE QUESTION SET RAND_KEY = RANDOM() WHERE RAND_KEY IS NULL");
+            }
+
+            createTableIfMissing(cn, "APP_META", """
+    CREATE TABLE APP_META (
+      META_KEY VARCHAR(64) NOT NULL PRIMARY KEY,
+      META_VALUE VARCHAR(256)
     )
     """);
 
@@ -84,66 +197,303 @@ public class GameRepository {
       SESSION_ID BIGINT NOT NULL REFERENCES GAME_SESSION(ID),
       NAME VARCHAR(32) NOT NULL,
       QUESTION_ID BIGINT NOT NULL REFERENCES QUESTION(ID),
+      TIER SMALLINT,
       USED_AT TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
     )
     """);
+            // databases made before lifelines were recorded don't have the tier yet
+            addColumnIfMissing(cn, "LIFELINE_USE", "TIER", "SMALLINT");
 
             // Simple indexes helpful for leaderboard queries
             createIndexIfMissing(cn, "IDX_SESSION_WINNINGS", "GAME_SESSION", "WINNINGS");
             createIndexIfMissing(cn, "IDX_SESSION_FINISHED_AT", "GAME_SESSION", "FINISHED_AT");
+            // matches the leaderboard ORDER BY so FETCH FIRST n ROWS can stop early
+            createIndexIfMissing(cn, "IDX_SESSION_LEADERBOARD", "GAME_SESSION",
+                    "WINNINGS DESC, FINISHED_AT DESC");
+            // lifeline usage per question is answered from this index alone
+            createIndexIfMissing(cn, "IDX_LIFELINE_QUESTION", "LIFELINE_USE", "QUESTION_ID, NAME");
+            createQuestionIndexes(cn);
 
         } catch (SQLException e) {
             throw new IllegalStateException("Schema bootstrap failed", e);
         }
     }
-    // this method fills out the database if the questions are empty
+    // this method fills out the database if the questions are empty. It goes through
+    // QuestionImport, so a seed that died half way resumes from its last committed chunk
     public int seedIfEmpty(List<Question> starter) {
         if (starter == null || starter.isEmpty()) {
             return 0;
         }
+        QuestionImport seed = QuestionImport.seed(this, SEED_IMPORT);
+        if (seed.isFinished() || (seed.committed() == 0 && countQuestions() > 0)) {
+            return 0; // seeded before (or filled some other way)
+        }
+        return (int) seed.run(QuestionBank.copyOf(starter)).inserted();
+    }
+    // this method counts the QUESTION rows, retired ones included
+    public int countQuestions() {
+        try (Connection cn = getConnection(); Statement st = cn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM QUESTION")) {
+            rs.next();
+            return rs.getInt(1);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Counting questions failed", e);
+        }
+    }
+    // called by QuestionImport after it commits rows, so the cached snapshot is reloaded
+    void questionsChanged() {
+        questionVersion.incrementAndGet();
+    }
+    
+    // this method brings QUESTION in line with the questions file. The file's SHA-256 is kept in
+    // APP_META, so when it hasn't changed nothing is parsed at all; when it has, only the rows
+    // that differ are written. Questions that left the file are deleted, or retired if a
+    // recorded lifeline use still points at them. Untagged questions are written with a tier
+    // from their place in the file (see UNTAGGED_TIERS).
+    public QuestionSync syncQuestions(FileQuestionRepository files) {
+        String fingerprint;
+        try {
+            fingerprint = files.fingerprint();
+        } catch (java.io.IOException e) {
+            throw new IllegalStateException("Could not read " + files.getPath(), e);
+        }
+        if (fingerprint == null || fingerprint.equals(metaValue(META_QUESTIONS_SHA256))) {
+            return QuestionSync.UNCHANGED;
+        }
+
+        java.util.LinkedHashMap<String, Question> incoming = new java.util.LinkedHashMap<>();
+        java.util.List<String> problems = new java.util.ArrayList<>();
+        QuestionFileParser.Report report;
+        try {
+            report = files.forEach((line, id, q) -> {
+                if (id.isEmpty() || id.length() > 64) {
+                    problems.add("line: " + line + ", ID must be 1-64 characters");
+                } else if (incoming.putIfAbsent(id, q) != null) {
+                    problems.add("line: " + line + ", duplicate ID " + id);
+                }
+            });
+        } catch (java.io.IOException e) {
+            throw new IllegalStateException("Could not read " + files.getPath(), e);
+        }
+        if (report.hasErrors()) {
+            throw new IllegalArgumentException(report.summary());
+        }
+        if (!problems.isEmpty()) {
+            throw new IllegalArgumentException(files.getPath() + ": " + String.join(", ", problems));
+        }
 
         try (Connection cn = getConnection()) {
-            // Is table empty?
-            int count;
-            try (Statement st = cn.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM QUESTION")) {
-                rs.next();
-                count = rs.getInt(1);
+            cn.setAutoCommit(false);
+            try {
+                QuestionSync result = applyQuestions(cn, incoming);
+                writeMeta(cn, META_QUESTIONS_SHA256, fingerprint);
+                cn.commit();
+                if (result.changed()) {
+                    questionVersion.incrementAndGet();
+                }
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                cn.rollback();
+                throw e;
             }
-            if (count > 0) {
-                return 0;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Question sync failed", e);
+        }
+    }
+    // helper method for syncQuestions: diffs the file against QUESTION and writes the difference.
+    // Only rows the file owns (SOURCE is null) are looked at, bulk imports are left alone
+    private QuestionSync applyQuestions(Connection cn, java.util.LinkedHashMap<String, Question> incoming)
+            throws SQLException {
+        java.util.Map<String, StoredQuestion> byExtId = new java.util.HashMap<>();
+        java.util.List<StoredQuestion> unmatched = new java.util.ArrayList<>();
+        try (PreparedStatement ps = cn.prepareStatement(
+                "SELECT ID, EXT_ID, STEM, OPTA, OPTB, OPTC, OPTD, CORRECT, POS, RETIRED, TIER FROM QUESTION "
+                + "WHERE SOURCE IS NULL");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                int pos = rs.getInt(9);
+                if (rs.wasNull()) {
+                    pos = -1;
+                }
+                StoredQuestion row = new StoredQuestion(rs.getLong(1), rs.getString(2),
+                        new String[]{rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6), rs.getString(7)},
+                        rs.getInt(8), pos, rs.getInt(10) != 0, rs.getInt(11));
+                if (row.extId() == null || byExtId.putIfAbsent(row.extId(), row) != null) {
+                    unmatched.add(row);
+                }
             }
+        }
 
-            String sql = """
-            INSERT INTO QUESTION (STEM, OPTA, OPTB, OPTC, OPTD, CORRECT)
-            VALUES (?, ?, ?, ?, ?, ?)
-            """;
+        // rows seeded before EXT_ID existed: claim them by matching the question text
+        java.util.Map<String, String> extIdByStem = new java.util.HashMap<>();
+        for (java.util.Map.Entry<String, Question> e : incoming.entrySet()) {
+            if (!byExtId.containsKey(e.getKey())) {
+                extIdByStem.putIfAbsent(e.getValue().getQuestion(), e.getKey());
+            }
+        }
+        java.util.Iterator<StoredQuestion> it = unmatched.iterator();
+        while (it.hasNext()) {
+            StoredQuestion row = it.next();
+            String extId = row.extId() == null ? extIdByStem.remove(row.text()[0]) : null;
+            if (extId != null) {
+                byExtId.put(extId, row);
+                it.remove();
+            }
+        }
 
-            try (PreparedStatement ps = cn.prepareStatement(sql)) {
-                for (Question q : starter) {
-                    ps.setString(1, q.getQuestion());
-                    ps.setString(2, q.getOption(0).toString());
-                    ps.setString(3, q.getOption(1).toString());
-                    ps.setString(4, q.getOption(2).toString());
-                    ps.setString(5, q.getOption(3).toString());
-                    ps.setInt(6, q.getCorrectAnswer());
-                    ps.addBatch();
+        int inserted = 0, updated = 0, moved = 0, deleted = 0, retired = 0;
+        try (PreparedStatement ins = cn.prepareStatement(
+                "INSERT INTO QUESTION (STEM, OPTA, OPTB, OPTC, OPTD, CORRECT, EXT_ID, POS, TIER, RETIRED, RAND_KEY) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0, RANDOM())");
+             PreparedStatement upd = cn.prepareStatement(
+                "UPDATE QUESTION SET STEM = ?, OPTA = ?, OPTB = ?, OPTC = ?, OPTD = ?, CORRECT = ?, "
+                + "EXT_ID = ?, POS = ?, TIER = ?, RETIRED = 0 WHERE ID = ?")) {
+            int pos = 0;
+            for (java.util.Map.Entry<String, Question> e : incoming.entrySet()) {
+                pos++;
+                Question q = e.getValue();
+                int tier = q.getTier() != 0 ? q.getTier()
+                        : TieredQuestionPools.tierAt(pos, incoming.size(), UNTAGGED_TIERS);
+                StoredQuestion row = byExtId.remove(e.getKey());
+                if (row == null) {
+                    bindQuestion(ins, q, e.getKey(), pos, tier);
+                    ins.addBatch();
+                    inserted++;
+                    continue;
                 }
-                int[] res = ps.executeBatch();
-                int inserted = 0;
-                for (int r : res) {
-                    if (r >= 0) {
-                        inserted += r;
-                    } else if (r == Statement.SUCCESS_NO_INFO) {
-                        inserted += 1;
-                    }
+                // a tier that only follows from the position changes with it, so that counts as a move
+                boolean sameText = row.sameAs(q);
+                if (sameText && row.pos() == pos && row.tier() == tier && !row.retired()
+                        && e.getKey().equals(row.extId())) {
+                    continue;
                 }
-                if (inserted == 0 && res.length == starter.size()) {
-                    inserted = starter.size();
+                bindQuestion(upd, q, e.getKey(), pos, tier);
+                upd.setLong(10, row.id());
+                upd.addBatch();
+                if (sameText) moved++; else updated++;
+            }
+            ins.executeBatch();
+            upd.executeBatch();
+        }
+
+        // whatever is left is no longer in the file
+        unmatched.addAll(byExtId.values());
+        try (PreparedStatement used = cn.prepareStatement(
+                "SELECT 1 FROM LIFELINE_USE WHERE QUESTION_ID = ? FETCH FIRST 1 ROWS ONLY");
+             PreparedStatement del = cn.prepareStatement("DELETE FROM QUESTION WHERE ID = ?");
+             PreparedStatement ret = cn.prepareStatement(
+                "UPDATE QUESTION SET RETIRED = 1, POS = NULL WHERE ID = ?")) {
+            for (StoredQuestion row : unmatched) {
+                if (row.retired()) {
+                    continue;
+                }
+                used.setLong(1, row.id());
+                boolean referenced;
+                try (ResultSet rs = used.executeQuery()) {
+                    referenced = rs.next();
+                }
+                PreparedStatement ps = referenced ? ret : del;
+                ps.setLong(1, row.id());
+                ps.addBatch();
+                if (referenced) retired++; else deleted++;
+            }
+            del.executeBatch();
+            ret.executeBatch();
+        }
+        return new QuestionSync(inserted, updated, moved, deleted, retired);
+    }
+    // helper method to fill the 9 question columns shared by the sync INSERT and UPDATE
+    private static void bindQuestion(PreparedStatement ps, Question q, String extId, int pos, int tier)
+            throws SQLException {
+        ps.setString(1, q.getQuestion());
+        for (int i = 0; i < 4; i++) {
+            ps.setString(2 + i, q.getOption(i).getText());
+        }
+        ps.setInt(6, q.getCorrectAnswer());
+        ps.setString(7, extId);
+        ps.setInt(8, pos);
+        ps.setInt(9, tier);
+    }
+    // one QUESTION row as syncQuestions sees it, text is {stem, A, B, C, D}, pos is -1 when unset
+    private record StoredQuestion(long id, String extId, String[] text, int correct, int pos, boolean retired,
+            int tier) {
+        boolean sameAs(Question q) {
+            if (correct != q.getCorrectAnswer() || (q.getTier() != 0 && tier != q.getTier())
+                    || !text[0].equals(q.getQuestion())) {
+                return false;
+            }
+            for (int i = 0; i < 4; i++) {
+                if (!text[1 + i].equals(q.getOption(i).getText())) {
+                    return false;
                 }
-                return inserted;
             }
+            return true;
+        }
+    }
+
+    /**
+     * What syncQuestions did: rows inserted, rows whose text changed, rows that only
+     * moved position, and rows that left the file (deleted, or retired when lifeline
+     * history still refers to them).
+     */
+    public record QuestionSync(int inserted, int updated, int moved, int deleted, int retired) {
+        static final QuestionSync UNCHANGED = new QuestionSync(0, 0, 0, 0, 0);
+
+        public boolean changed() {
+            return inserted + updated + moved + deleted + retired > 0;
+        }
+    }
+
+    // this method returns the fingerprint of the questions file QUESTION was last synced from
+    public String questionFingerprint() {
+        return metaValue(META_QUESTIONS_SHA256);
+    }
+    // helper method to read one APP_META value (null if unset)
+    private String metaValue(String key) {
+        try (Connection cn = getConnection()) {
+            return readMeta(cn, key);
         } catch (SQLException e) {
-            throw new IllegalStateException("Seeding failed", e);
+            throw new IllegalStateException("Reading APP_META failed", e);
+        }
+    }
+    static String readMeta(Connection cn, String key) throws SQLException {
+        try (PreparedStatement ps = cn.prepareStatement("SELECT META_VALUE FROM APP_META WHERE META_KEY = ?")) {
+            ps.setString(1, key);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+    // helper method to set one APP_META value on the caller's connection (so it joins their transaction)
+    static void writeMeta(Connection cn, String key, String value) throws SQLException {
+        try (PreparedStatement up = cn.prepareStatement("UPDATE APP_META SET META_VALUE = ? WHERE META_KEY = ?")) {
+            up.setString(1, value);
+            up.setString(2, key);
+            if (up.executeUpdate() > 0) {
+                return;
+            }
+        }
+        try (PreparedStatement ins = cn.prepareStatement("INSERT INTO APP_META (META_KEY, META_VALUE) VALUES (?, ?)")) {
+            ins.setString(1, key);
+            ins.setString(2, value);
+            ins.executeUpdate();
+        }
+    }
+    
+    // helper method to create every QUESTION_INDEXES index that is missing
+    static void createQuestionIndexes(Connection cn) throws SQLException {
+        for (String[] idx : QUESTION_INDEXES) {
+            createIndexIfMissing(cn, idx[0], "QUESTION", idx[1]);
+        }
+    }
+    // helper method to drop the QUESTION_INDEXES indexes (the primary key stays)
+    static void dropQuestionIndexes(Connection cn) throws SQLException {
+        for (String[] idx : QUESTION_INDEXES) {
+            if (indexExists(cn, idx[0], "QUESTION")) {
+                try (Statement st = cn.createStatement()) {
+                    st.executeUpdate("DROP INDEX " + idx[0]);
+                }
+            }
         }
     }
     
@@ -164,6 +514,19 @@ public class GameRepository {
         }
     }
     
+    // helper method to add a column to an existing table if it isn't there yet
+    private static void addColumnIfMissing(Connection cn, String tableUpper, String colUpper, String type) throws SQLException {
+        DatabaseMetaData md = cn.getMetaData();
+        try (ResultSet rs = md.getColumns(null, null, tableUpper, colUpper)) {
+            if (rs.next()) {
+                return;
+            }
+        }
+        try (Statement st = cn.createStatement()) {
+            st.executeUpdate("ALTER TABLE " + tableUpper + " ADD COLUMN " + colUpper + " " + type);
+        }
+    }
+    
     // helper method to check if index exists
     private static boolean indexExists(Connection cn, String indexUpper, String tableUpper) throws SQLException {
         DatabaseMetaData md = cn.getMetaData();
@@ -184,28 +547,250 @@ public class GameRepository {
         }
     }
     
-    // this method finds all the questions in the database
+    // this method finds all the live questions in the database, in questions file order
     public List<Question> findAllQuestions() {
+        java.util.ArrayList<Question> out = new java.util.ArrayList<>();
+        forEachQuestion(out::add);
+        return out;
+    }
+    // helper method that streams the live questions in order without collecting them
+    private void forEachQuestion(java.util.function.Consumer<Question> sink) {
         try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(
-                "SELECT STEM, OPTA, OPTB, OPTC, OPTD, CORRECT "
-                + "FROM QUESTION ORDER BY ID ASC")) {
+                "SELECT ID, STEM, OPTA, OPTB, OPTC, OPTD, CORRECT, TIER "
+                + "FROM QUESTION WHERE RETIRED = 0 ORDER BY POS ASC, ID ASC")) {
             try (ResultSet rs = ps.executeQuery()) {
-                java.util.ArrayList<Question> out = new java.util.ArrayList<>();
                 while (rs.next()) {
-                    String stem = rs.getString(1);
-                    String a = rs.getString(2);
-                    String b = rs.getString(3);
-                    String c = rs.getString(4);
-                    String d = rs.getString(5);
-                    int correct = rs.getInt(6);
-                    out.add(Question.of(stem, a, b, c, d, correct));
+                    long id = rs.getLong(1);
+                    String stem = rs.getString(2);
+                    String a = rs.getString(3);
+                    String b = rs.getString(4);
+                    String c = rs.getString(5);
+                    String d = rs.getString(6);
+                    int correct = rs.getInt(7);
+                    int tier = rs.getInt(8);
+                    sink.accept(Question.of(id, tier, stem, a, b, c, d, correct));
                 }
-                return out;
             }
         } catch (SQLException e) {
             throw new IllegalStateException("findAllQuestions failed", e);
         }
     }
+    // helper method for questionSnapshot: big tables go straight into an off-heap bank,
+    // bigger ones only load their keys and read the text when it's played
+    private QuestionBank loadQuestionBank() {
+        int n = countLiveQuestions();
+        if (n >= lazyThreshold()) {
+            return lazyQuestionBank(LAZY_CACHE_SIZE);
+        }
+        if (n < OFF_HEAP_THRESHOLD) {
+            return QuestionBank.copyOf(findAllQuestions());
+        }
+        OffHeapQuestionBank.Builder b = OffHeapQuestionBank.builder();
+        forEachQuestion(b::add);
+        return b.build();
+    }
+    // the table size from which questionSnapshot loads a LazyQuestionBank (tests lower it)
+    int lazyThreshold() {
+        return LAZY_THRESHOLD;
+    }
+    // this method loads only id, correct option and tier of every live question; the
+    // text is read by id when a game asks for it, through an LRU of cacheSize questions
+    public LazyQuestionBank lazyQuestionBank(int cacheSize) {
+        int n = countLiveQuestions();
+        long[] ids = new long[n];
+        byte[] correct = new byte[n];
+        byte[] tiers = new byte[n];
+        int i = 0;
+        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(
+                "SELECT ID, CORRECT, TIER FROM QUESTION WHERE RETIRED = 0 ORDER BY POS ASC, ID ASC")) {
+            try (ResultSet rs = ps.executeQuery()) {
+                // rows retired or added since the count are simply left out or picked up next time
+                while (i < n && rs.next()) {
+                    ids[i] = rs.getLong(1);
+                    correct[i] = (byte) rs.getInt(2);
+                    tiers[i] = (byte) rs.getInt(3);
+                    i++;
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Loading question keys failed", e);
+        }
+        if (i < n) {
+            ids = java.util.Arrays.copyOf(ids, i);
+            correct = java.util.Arrays.copyOf(correct, i);
+            tiers = java.util.Arrays.copyOf(tiers, i);
+        }
+        return new LazyQuestionBank(ids, correct, tiers, (number, id) -> questionText(id), cacheSize);
+    }
+    // this method reads the stem and four answers of one question
+    String[] questionText(long id) {
+        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(
+                "SELECT STEM, OPTA, OPTB, OPTC, OPTD FROM QUESTION WHERE ID = ?")) {
+            ps.setLong(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new IllegalStateException("Question " + id + " no longer exists");
+                }
+                return new String[]{rs.getString(1), rs.getString(2), rs.getString(3),
+                    rs.getString(4), rs.getString(5)};
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Loading question " + id + " failed", e);
+        }
+    }
+    private int countLiveQuestions() {
+        try (Connection cn = getConnection(); Statement st = cn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM QUESTION WHERE RETIRED = 0")) {
+            rs.next();
+            return rs.getInt(1);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Counting questions failed", e);
+        }
+    }
+    // this method returns how many questions can be played, counted once per question version
+    public int liveQuestionCount() {
+        long[] cached = liveCount;
+        long version = questionVersion.get();
+        if (cached != null && cached[0] == version) {
+            return (int) cached[1];
+        }
+        int n = countLiveQuestions();
+        liveCount = new long[]{version, n};
+        return n;
+    }
+    
+    // this method picks the questions for one game in the database: question t comes from
+    // tier t, found by seeking IDX_QUESTION_TIER_RAND to a random RAND_KEY, so only the rows
+    // the game needs are read however big QUESTION is. A tier with nothing in it borrows
+    // from the untagged questions (tier 0), then from the nearest tier that has some.
+    public List<Question> sampleGame(int length) {
+        return sampleGame(length, null);
+    }
+    // same as above, passing over questions the player has probably seen while their tier
+    // still turns up others (seen may be null)
+    public List<Question> sampleGame(int length, SeenFilter seen) {
+        if (length < 1 || length > Question.MAX_TIER) {
+            throw new IllegalArgumentException("length must be between 1 and " + Question.MAX_TIER);
+        }
+        java.util.ArrayList<Question> out = new java.util.ArrayList<>(length);
+        java.util.Set<Long> chosen = new java.util.HashSet<>();
+        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(SAMPLE_SQL)) {
+            for (int t = 1; t <= length; t++) {
+                Question q = sampleUnseen(ps, t, chosen, seen);
+                if (q == null) q = sampleUnseen(ps, 0, chosen, seen);
+                for (int d = 1; q == null && d < length; d++) {
+                    if (t - d >= 1) q = sampleUnseen(ps, t - d, chosen, seen);
+                    if (q == null && t + d <= length) q = sampleUnseen(ps, t + d, chosen, seen);
+                }
+                if (q == null) {
+                    break; // fewer questions than the game is long
+                }
+                chosen.add(q.getId());
+                out.add(q);
+            }
+            return out;
+        } catch (SQLException e) {
+            throw new IllegalStateException("sampleGame failed", e);
+        }
+    }
+    // this method samples n different questions from one tier (fewer if the tier is smaller)
+    public List<Question> sampleTier(int tier, int n) {
+        java.util.ArrayList<Question> out = new java.util.ArrayList<>(n);
+        java.util.Set<Long> chosen = new java.util.HashSet<>();
+        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(SAMPLE_SQL)) {
+            for (int i = 0; i < n; i++) {
+                Question q = sampleOne(ps, tier, chosen);
+                if (q == null) {
+                    break;
+                }
+                chosen.add(q.getId());
+                out.add(q);
+            }
+            return out;
+        } catch (SQLException e) {
+            throw new IllegalStateException("sampleTier failed", e);
+        }
+    }
+    // helper method: sampleOne, drawing again (up to TieredQuestionPools.SEEN_ATTEMPTS times)
+    // while it lands on a question the player has seen; settles for a seen one from this tier
+    private static Question sampleUnseen(PreparedStatement ps, int tier, java.util.Set<Long> skip, SeenFilter seen)
+            throws SQLException {
+        Question fallback = null;
+        for (int attempt = 0; attempt < TieredQuestionPools.SEEN_ATTEMPTS; attempt++) {
+            Question q = sampleOne(ps, tier, skip);
+            if (q == null || seen == null || !seen.mightHaveSeen(q.getId())) {
+                return q != null ? q : fallback;
+            }
+            if (fallback == null) {
+                fallback = q;
+            }
+        }
+        return fallback;
+    }
+    // this method reads these questions back by id, in the order given (ids no longer in
+    // QUESTION are left out); used to rebuild a sampled game that was saved
+    public List<Question> findQuestions(long[] ids) {
+        java.util.ArrayList<Question> out = new java.util.ArrayList<>(ids.length);
+        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(
+                "SELECT ID, STEM, OPTA, OPTB, OPTC, OPTD, CORRECT, TIER FROM QUESTION WHERE ID = ?")) {
+            for (long id : ids) {
+                ps.setLong(1, id);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        out.add(Question.of(rs.getLong(1), rs.getInt(8), rs.getString(2), rs.getString(3),
+                                rs.getString(4), rs.getString(5), rs.getString(6), rs.getInt(7)));
+                    }
+                }
+            }
+            return out;
+        } catch (SQLException e) {
+            throw new IllegalStateException("findQuestions failed", e);
+        }
+    }
+    // helper method: the first row of the tier at or after a random key (wrapping round to
+    // the start of the tier), skipping rows this game already has; null if there is none
+    private static Question sampleOne(PreparedStatement ps, int tier, java.util.Set<Long> skip) throws SQLException {
+        double key = java.util.concurrent.ThreadLocalRandom.current().nextDouble();
+        int want = skip.size() + 1; // enough rows that one of them is new
+        for (double from : new double[]{key, 0.0}) {
+            ps.setInt(1, tier);
+            ps.setDouble(2, from);
+            ps.setInt(3, want);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long id = rs.getLong(1);
+                    if (!skip.contains(id)) {
+                        return Question.of(id, rs.getInt(8), rs.getString(2), rs.getString(3),
+                                rs.getString(4), rs.getString(5), rs.getString(6), rs.getInt(7));
+                    }
+                }
+            }
+        }
+        return null;
+    }
+    // this method returns the current question version (changes whenever QUESTION is written)
+    public long questionVersion() {
+        return questionVersion.get();
+    }
+    
+    // this method returns the shared question snapshot, reloading it only if QUESTION changed
+    public QuestionSnapshot questionSnapshot() {
+        QuestionSnapshot snap = questionSnapshot;
+        long version = questionVersion.get();
+        if (snap != null && snap.getVersion() == version) {
+            return snap;
+        }
+        synchronized (this) {
+            snap = questionSnapshot;
+            version = questionVersion.get();
+            if (snap == null || snap.getVersion() != version) {
+                snap = new QuestionSnapshot(version, loadQuestionBank());
+                questionSnapshot = snap;
+            }
+            return snap;
+        }
+    }
+    
     // this method ensures that the player name if vlid for a new game to later be updated to the highscores
     public long ensurePlayer(String name) {
         if (name == null || name.trim().isEmpty()) {
@@ -213,35 +798,89 @@ public class GameRepository {
         }
         String trimmed = name.trim();
 
+        Long cached = playerIds.get(trimmed);
+        if (cached != null) {
+            playerCacheHits.increment();
+            return cached;
+        }
+        playerCacheMisses.increment();
+
         try (Connection cn = getConnection()) {
-            // try select
-            try (PreparedStatement sel = cn.prepareStatement(
-                    "SELECT ID FROM PLAYER WHERE NAME = ?")) {
-                sel.setString(1, trimmed);
-                try (ResultSet rs = sel.executeQuery()) {
-                    if (rs.next()) {
-                        return rs.getLong(1);
+            for (int attempt = 0; attempt < ENSURE_PLAYER_ATTEMPTS; attempt++) {
+                // insert first: one round trip for a new name
+                try (PreparedStatement ins = cn.prepareStatement(
+                        "INSERT INTO PLAYER (NAME) VALUES (?)",
+                        PreparedStatement.RETURN_GENERATED_KEYS)) {
+                    ins.setString(1, trimmed);
+                    ins.executeUpdate();
+                    try (ResultSet keys = ins.getGeneratedKeys()) {
+                        if (keys.next()) {
+                            return rememberPlayer(trimmed, keys.getLong(1));
+                        }
+                    }
+                    throw new IllegalStateException("ensurePlayer: no key returned");
+                } catch (SQLException e) {
+                    if (!DUPLICATE_KEY.equals(e.getSQLState())) {
+                        throw e;
                     }
+                    playerDuplicateRetries.increment();
                 }
-            }
-            // insert
-            try (PreparedStatement ins = cn.prepareStatement(
-                    "INSERT INTO PLAYER (NAME) VALUES (?)",
-                    PreparedStatement.RETURN_GENERATED_KEYS)) {
-                ins.setString(1, trimmed);
-                ins.executeUpdate();
-                try (ResultSet keys = ins.getGeneratedKeys()) {
-                    if (keys.next()) {
-                        return keys.getLong(1);
+                // the name already exists (or someone just inserted it), read its id
+                try (PreparedStatement sel = cn.prepareStatement(
+                        "SELECT ID FROM PLAYER WHERE NAME = ?")) {
+                    sel.setString(1, trimmed);
+                    try (ResultSet rs = sel.executeQuery()) {
+                        if (rs.next()) {
+                            return rememberPlayer(trimmed, rs.getLong(1));
+                        }
                     }
                 }
+                // the row vanished between the two statements, try again
             }
-            throw new IllegalStateException("ensurePlayer: no key returned");
+            throw new IllegalStateException("ensurePlayer: gave up after "
+                    + ENSURE_PLAYER_ATTEMPTS + " attempts for " + trimmed);
         } catch (SQLException e) {
             throw new IllegalStateException("ensurePlayer failed", e);
         }
 
     }
+    // helper method to put a player in both lookup maps
+    private long rememberPlayer(String name, long id) {
+        playerIds.put(name, id);
+        playerNames.put(id, name);
+        return id;
+    }
+    // this method returns the player's seen filter; only the first call per player reads the
+    // database, after that the same filter is used (and saved by the session write-behind)
+    public SeenFilter seenFilter(long playerId) {
+        return seenFilters.computeIfAbsent(playerId, id -> {
+            try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(
+                    "SELECT SEEN FROM PLAYER WHERE ID = ?")) {
+                ps.setLong(1, id);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return SeenFilter.fromBytes(rs.next() ? rs.getBytes(1) : null);
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Loading seen questions failed", e);
+            }
+        });
+    }
+    // this method returns how well the player id cache is doing
+    public PlayerCacheStats playerCacheStats() {
+        long hits = playerCacheHits.sum();
+        long misses = playerCacheMisses.sum();
+        long lookups = hits + misses;
+        return new PlayerCacheStats(hits, misses, playerDuplicateRetries.sum(),
+                lookups == 0 ? 0.0 : (double) hits / lookups, playerIds.size());
+    }
+
+    /**
+     * Counters for the player id cache. hitRate is between 0 and 1.
+     */
+    public record PlayerCacheStats(long hits, long misses, long duplicateKeyRetries,
+            double hitRate, int cachedPlayers) {
+    }
+
     // this method starts a new game and reads the player ID later to be appeneded in the highscores 
     public long startSession(long playerId) {
 
@@ -252,7 +891,9 @@ public class GameRepository {
             ps.executeUpdate();
             try (ResultSet keys = ps.getGeneratedKeys()) {
                 if (keys.next()) {
-                    return keys.getLong(1);
+                    long sessionId = keys.getLong(1);
+                    openSessions.put(sessionId, playerId);
+                    return sessionId;
                 }
             }
             throw new IllegalStateException("startSession: no key returned");
@@ -262,49 +903,311 @@ public class GameRepository {
     }
     // this method handles the game over ready to be appened in the highscores
     public void finishSession(long sessionId, int winnings, long elapsedSeconds, java.time.Instant finishedAt) {
+        java.sql.Timestamp ts = java.sql.Timestamp.from(finishedAt);
+        statsLock.readLock().lock();
+        try {
+            try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(
+                    "UPDATE GAME_SESSION SET WINNINGS=?, ELAPSED_SECONDS=?, FINISHED_AT=? WHERE ID=?")) {
+                ps.setInt(1, winnings);
+                ps.setLong(2, elapsedSeconds);
+                ps.setTimestamp(3, ts);
+                ps.setLong(4, sessionId);
+                ps.executeUpdate();
+            } catch (SQLException e) {
+                throw new IllegalStateException("finishSession failed", e);
+            }
+            recordFinished(sessionId, openSessions.remove(sessionId), winnings, ts);
+        } finally {
+            statsLock.readLock().unlock();
+        }
+    }
+    // helper method to add a finished session to the in-memory leaderboard and rank index
+    private void recordFinished(long sessionId, Long playerId, int winnings, java.sql.Timestamp ts) {
+        if (leaderboard.isLoaded()) {
+            String name = playerId == null ? null : playerNames.get(playerId);
+            if (name == null) {
+                name = playerNameForSession(sessionId);
+            }
+            leaderboard.offer(new Leaderboard.Entry(sessionId, name, winnings, ts));
+            // a session is only finished once, so it is counted once
+            rankIndex.add(winnings);
+        }
+    }
+    // this method writes a batch of queued sessions in one transaction (used by SessionWriteBehind)
+    // and returns the GAME_SESSION id of each one, in the same order
+    long[] writeSessions(List<SessionWriteBehind.Write> writes) {
+        long[] ids = new long[writes.size()];
+        statsLock.readLock().lock();
+        try {
+            try (Connection cn = getConnection()) {
+                cn.setAutoCommit(false);
+                try (PreparedStatement ins = cn.prepareStatement(
+                        "INSERT INTO GAME_SESSION (PLAYER_ID, WINNINGS, ELAPSED_SECONDS, STARTED_AT, FINISHED_AT) "
+                        + "VALUES (?, ?, ?, ?, ?)", PreparedStatement.RETURN_GENERATED_KEYS);
+                     PreparedStatement upd = cn.prepareStatement(
+                        "UPDATE GAME_SESSION SET WINNINGS=?, ELAPSED_SECONDS=?, FINISHED_AT=? WHERE ID=?");
+                     PreparedStatement life = cn.prepareStatement(
+                        "INSERT INTO LIFELINE_USE (SESSION_ID, NAME, QUESTION_ID, TIER, USED_AT) "
+                        + "VALUES (?, ?, ?, ?, ?)");
+                     PreparedStatement seen = cn.prepareStatement(
+                        "UPDATE PLAYER SET SEEN = ? WHERE ID = ?");
+                     PreparedStatement exists = cn.prepareStatement(
+                        "SELECT 1 FROM QUESTION WHERE ID = ?")) {
+                    boolean anyUpdates = false;
+                    for (int i = 0; i < writes.size(); i++) {
+                        SessionWriteBehind.Write w = writes.get(i);
+                        if (w.sessionId() >= 0) {
+                            upd.setInt(1, w.winnings());
+                            upd.setLong(2, w.elapsedSeconds());
+                            upd.setTimestamp(3, java.sql.Timestamp.from(w.finishedAt()));
+                            upd.setLong(4, w.sessionId());
+                            upd.addBatch();
+                            anyUpdates = true;
+                            ids[i] = w.sessionId();
+                            continue;
+                        }
+                        // inserts go one by one because Derby only returns keys per statement
+                        ins.setLong(1, w.playerId());
+                        ins.setInt(2, w.winnings());
+                        ins.setLong(3, w.elapsedSeconds());
+                        ins.setTimestamp(4, java.sql.Timestamp.from(w.startedAt()));
+                        if (w.finishedAt() == null) {
+                            ins.setNull(5, Types.TIMESTAMP);
+                        } else {
+                            ins.setTimestamp(5, java.sql.Timestamp.from(w.finishedAt()));
+                        }
+                        ins.executeUpdate();
+                        try (ResultSet keys = ins.getGeneratedKeys()) {
+                            if (!keys.next()) {
+                                throw new SQLException("writeSessions: no key returned");
+                            }
+                            ids[i] = keys.getLong(1);
+                        }
+                    }
+                    if (anyUpdates) {
+                        upd.executeBatch();
+                    }
+                    // every lifeline from every finished session in this batch, one JDBC batch
+                    boolean anyLifelines = false;
+                    java.util.Map<Long, Boolean> questionExists = new java.util.HashMap<>();
+                    for (int i = 0; i < writes.size(); i++) {
+                        for (LifelineUse use : writes.get(i).lifelines()) {
+                            if (use.questionId() <= 0) {
+                                continue; // question didn't come from the database
+                            }
+                            Boolean found = questionExists.get(use.questionId());
+                            if (found == null) {
+                                exists.setLong(1, use.questionId());
+                                try (ResultSet rs = exists.executeQuery()) {
+                                    found = rs.next();
+                                }
+                                questionExists.put(use.questionId(), found);
+                            }
+                            if (!found) {
+                                continue; // question was removed by a sync since the game started
+                            }
+                            life.setLong(1, ids[i]);
+                            life.setString(2, use.name());
+                            life.setLong(3, use.questionId());
+                            life.setInt(4, use.questionNumber());
+                            life.setTimestamp(5, java.sql.Timestamp.from(use.usedAt()));
+                            life.addBatch();
+                            anyLifelines = true;
+                        }
+                    }
+                    if (anyLifelines) {
+                        life.executeBatch();
+                    }
+                    // seen filters, the newest one per player wins
+                    java.util.Map<Long, byte[]> seenBlobs = new java.util.LinkedHashMap<>();
+                    for (SessionWriteBehind.Write w : writes) {
+                        if (w.seen() != null) {
+                            seenBlobs.put(w.playerId(), w.seen());
+                        }
+                    }
+                    for (java.util.Map.Entry<Long, byte[]> e : seenBlobs.entrySet()) {
+                        seen.setBytes(1, e.getValue());
+                        seen.setLong(2, e.getKey());
+                        seen.addBatch();
+                    }
+                    if (!seenBlobs.isEmpty()) {
+                        seen.executeBatch();
+                    }
+                    cn.commit();
+                } catch (SQLException e) {
+                    cn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("writeSessions failed", e);
+            }
+            for (int i = 0; i < writes.size(); i++) {
+                SessionWriteBehind.Write w = writes.get(i);
+                if (w.finishedAt() != null) {
+                    recordFinished(ids[i], w.playerId(), w.winnings(), java.sql.Timestamp.from(w.finishedAt()));
+                }
+            }
+            return ids;
+        } finally {
+            statsLock.readLock().unlock();
+        }
+    }
+    // helper method to look up who played a session we didn't start ourselves
+    private String playerNameForSession(long sessionId) {
         try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(
-                "UPDATE GAME_SESSION SET WINNINGS=?, ELAPSED_SECONDS=?, FINISHED_AT=? WHERE ID=?")) {
-            ps.setInt(1, winnings);
-            ps.setLong(2, elapsedSeconds);
-            ps.setTimestamp(3, java.sql.Timestamp.from(finishedAt));
-            ps.setLong(4, sessionId);
-            ps.executeUpdate();
+                "SELECT P.NAME FROM GAME_SESSION S JOIN PLAYER P ON P.ID = S.PLAYER_ID WHERE S.ID = ?")) {
+            ps.setLong(1, sessionId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : "?";
+            }
         } catch (SQLException e) {
-            throw new IllegalStateException("finishSession failed", e);
+            throw new IllegalStateException("playerNameForSession failed", e);
+        }
+    }
+    // this method loads the in-memory leaderboard and rank index from the database (called once at startup)
+    public void loadLeaderboard() {
+        statsLock.writeLock().lock();
+        try {
+            rankIndex.clear();
+            try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(
+                    "SELECT WINNINGS, COUNT(*) FROM GAME_SESSION "
+                    + "WHERE FINISHED_AT IS NOT NULL GROUP BY WINNINGS")) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rankIndex.add(rs.getInt(1), rs.getLong(2));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("loadLeaderboard failed", e);
+            }
+            leaderboard.load(fetchTopSessions(leaderboard.capacity()));
+        } finally {
+            statsLock.writeLock().unlock();
+        }
+    }
+    // this method gives the rank and percentile a game with these winnings has
+    public RankIndex.Rank rankOf(int winnings) {
+        if (!leaderboard.isLoaded()) {
+            loadLeaderboard();
+        }
+        return rankIndex.rankOf(winnings);
+    }
+    // this method gives the rank a game that has just finished will have, counting the game
+    // itself; call it before the session is queued so it isn't counted twice
+    public RankIndex.Rank rankOfNewGame(int winnings) {
+        if (!leaderboard.isLoaded()) {
+            loadLeaderboard();
         }
+        return rankIndex.rankOfNew(winnings);
     }
+    // this method gives the rank of one finished session, or null if it isn't finished
+    public RankIndex.Rank rankOfSession(long sessionId) {
+        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(
+                "SELECT WINNINGS FROM GAME_SESSION WHERE ID = ? AND FINISHED_AT IS NOT NULL")) {
+            ps.setLong(1, sessionId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rankOf(rs.getInt(1)) : null;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("rankOfSession failed", e);
+        }
+    }
+    // this method gives the rank of a player's best finished game, or null if they have none
+    public RankIndex.Rank rankOfPlayer(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return null;
+        }
+        try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(
+                "SELECT MAX(S.WINNINGS) FROM GAME_SESSION S JOIN PLAYER P ON P.ID = S.PLAYER_ID "
+                + "WHERE P.NAME = ? AND S.FINISHED_AT IS NOT NULL")) {
+            ps.setString(1, name.trim());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    int best = rs.getInt(1);
+                    return rs.wasNull() ? null : rankOf(best);
+                }
+                return null;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("rankOfPlayer failed", e);
+        }
+    }
+    // this method counts lifeline use per question, rate is uses per finished game
+    public List<LifelineUsage> lifelineUsageByQuestion() {
+        return lifelineUsage("SELECT QUESTION_ID, NAME, COUNT(*) FROM LIFELINE_USE "
+                + "GROUP BY QUESTION_ID, NAME ORDER BY QUESTION_ID, NAME");
+    }
+    // this method counts lifeline use per ladder step (question number), rate is uses per finished game
+    public List<LifelineUsage> lifelineUsageByTier() {
+        return lifelineUsage("SELECT TIER, NAME, COUNT(*) FROM LIFELINE_USE "
+                + "WHERE TIER IS NOT NULL GROUP BY TIER, NAME ORDER BY TIER, NAME");
+    }
+    // helper method for the two lifeline summaries
+    private List<LifelineUsage> lifelineUsage(String sql) {
+        java.util.ArrayList<LifelineUsage> out = new java.util.ArrayList<>();
+        try (Connection cn = getConnection()) {
+            long games;
+            try (PreparedStatement ps = cn.prepareStatement(
+                    "SELECT COUNT(*) FROM GAME_SESSION WHERE FINISHED_AT IS NOT NULL");
+                 ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                games = rs.getLong(1);
+            }
+            try (PreparedStatement ps = cn.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long uses = rs.getLong(3);
+                    out.add(new LifelineUsage(rs.getLong(1), rs.getString(2), uses,
+                            games == 0 ? 0.0 : (double) uses / games));
+                }
+            }
+            return out;
+        } catch (SQLException e) {
+            throw new IllegalStateException("lifelineUsage failed", e);
+        }
+    }
+
+    /**
+     * One row of a lifeline summary. key is the QUESTION_ID or the tier,
+     * depending on which summary it came from.
+     */
+    public record LifelineUsage(long key, String name, long uses, double rate) {
+    }
+
     // this method orders the leaderboard by highscore decending
     public List<Object[]> topSessions(int limit) {
-        java.util.ArrayList<Object[]> rows = new java.util.ArrayList<>();
+        int n = Math.max(1, limit);
+        if (n > leaderboard.capacity()) {
+            // more rows than we keep in memory, go straight to the database
+            java.util.ArrayList<Object[]> rows = new java.util.ArrayList<>();
+            for (Leaderboard.Entry e : fetchTopSessions(n)) {
+                rows.add(new Object[]{e.player(), e.winnings(), e.finishedAt()});
+            }
+            return rows;
+        }
+        if (!leaderboard.isLoaded()) {
+            loadLeaderboard();
+        }
+        return leaderboard.top(n);
+    }
+    // cold-start path: only reads the first n rows thanks to IDX_SESSION_LEADERBOARD
+    private List<Leaderboard.Entry> fetchTopSessions(int limit) {
+        java.util.ArrayList<Leaderboard.Entry> rows = new java.util.ArrayList<>();
         try (Connection cn = getConnection(); PreparedStatement ps = cn.prepareStatement(
-                "SELECT P.NAME, S.WINNINGS, S.FINISHED_AT "
+                "SELECT S.ID, P.NAME, S.WINNINGS, S.FINISHED_AT "
                 + "FROM GAME_SESSION S JOIN PLAYER P ON P.ID = S.PLAYER_ID "
                 + "WHERE S.FINISHED_AT IS NOT NULL "
-                + "ORDER BY S.WINNINGS DESC, S.FINISHED_AT DESC")) {
+                + "ORDER BY S.WINNINGS DESC, S.FINISHED_AT DESC "
+                + "FETCH FIRST ? ROWS ONLY")) {
+            ps.setInt(1, limit);
             try (ResultSet rs = ps.executeQuery()) {
-                int count = 0;
-                while (rs.next() && count < Math.max(1, limit)) {
-                    String player = rs.getString(1);
-                    Integer win = rs.getInt(2);
-                    java.sql.Timestamp ts = rs.getTimestamp(3);
-                    rows.add(new Object[]{player, win, ts});
-                    count++;
+                while (rs.next()) {
+                    rows.add(new Leaderboard.Entry(rs.getLong(1), rs.getString(2),
+                            rs.getInt(3), rs.getTimestamp(4)));
                 }
             }
             return rows;
         } catch (SQLException e) {
             throw new IllegalStateException("topSessions failed", e);
-        }       
-    }     
+        }
+    }
 }
-
-
-    
-
-    
-    
-    
-    
-    
-    
-
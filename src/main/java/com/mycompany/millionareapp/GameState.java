@@ -10,6 +10,19 @@ package com.mycompany.millionareapp;
  * 
  * this class handles the game state of the project. it helps the program 
  * understand where the game is at while keeping track of all aspects of the game
+ * 
+ * prizes are stored as ladder steps (how far up the PrizeLadder you are) and turned
+ * into money by a single array read on the game's ladder
+ * 
+ * a game can also carry its own question order (bank numbers picked for it by
+ * TieredQuestionPools); without one, question N is bank question N
+ * 
+ * it can also carry one byte per question saying what order the answers are shown
+ * in (see OptionShuffle), and the seed both were drawn from so the game can be
+ * dealt again exactly
+ * 
+ * SessionStore keeps games packed in arrays instead and hands out subclasses of this
+ * class as views, so the getters and setters here are what the engine goes through
  */
 
 
@@ -18,25 +31,69 @@ public class GameState {
     //variables for different game states
     private String name;
     private int currentQuestionNum; // 1-based
-    private int currentPrize;
-    private int LastPrize;
+    private final PrizeLadder ladder;
+    private int currentTier;    // ladder step of the current prize
+    private int guaranteedTier; // ladder step of the last safe haven passed
     private boolean hasUsed5050;
     private boolean hasUsedLifeline;
     private boolean gameOver;
     private boolean won;
+    private java.util.List<LifelineUse> lifelineUses; // only created once a lifeline is used
+    private final int[] questionOrder; // bank number for each question, null = bank order
+    private final byte[] optionOrder;  // OptionShuffle code for each question, null = bank order
+    private final long seed;           // what the deal was drawn from, 0 when not dealt
+    private long journalId;            // the game's id in the GameJournal, 0 until it is logged
     
     //constructor
     public GameState(String name){
+        this(name, PrizeLadder.classic());
+    }
+    
+    // constructor for a game played on a specific ladder
+    public GameState(String name, PrizeLadder ladder){
+        this(name, ladder, null);
+    }
+    
+    // constructor for a game that asks the given bank questions in this order
+    public GameState(String name, PrizeLadder ladder, int[] questionOrder){
+        this(name, ladder, questionOrder, null, 0L);
+    }
+    
+    // constructor for a dealt game: question order, answer order and the seed they came from
+    public GameState(String name, PrizeLadder ladder, int[] questionOrder, byte[] optionOrder, long seed){
+        if(ladder == null) throw new NullPointerException("ladder");
+        if(questionOrder != null && questionOrder.length == 0){
+            throw new IllegalArgumentException("question order can't be empty");
+        }
+        this.questionOrder = questionOrder == null ? null : questionOrder.clone();
+        this.optionOrder = optionOrder == null ? null : optionOrder.clone();
+        this.seed = seed;
         this.name = name;
+        this.ladder = ladder;
         this.currentQuestionNum = 1; // 1-based
-        this.currentPrize = 0;
-        this.LastPrize = 0;
+        this.currentTier = 0;
+        this.guaranteedTier = 0;
         this.hasUsed5050 = false;
         this.hasUsedLifeline = false;
         this.gameOver = false;
         this.won = false;
     }
     
+    // constructor used to bring back a checkpointed game where it was left
+    GameState(String name, PrizeLadder ladder, int[] questionOrder, byte[] optionOrder, long seed,
+            int questionNumber, int currentTier, int guaranteedTier, boolean used5050, boolean usedLifeline){
+        this(name, ladder, questionOrder, optionOrder, seed);
+        if(questionNumber < 1 || currentTier < 0 || currentTier > ladder.size()
+                || guaranteedTier < 0 || guaranteedTier > currentTier){
+            throw new IllegalArgumentException("not a valid point in a game");
+        }
+        this.currentQuestionNum = questionNumber;
+        this.currentTier = currentTier;
+        this.guaranteedTier = guaranteedTier;
+        this.hasUsed5050 = used5050;
+        this.hasUsedLifeline = usedLifeline;
+    }
+    
     // getters 
     public String getName(){
         return name;
@@ -45,10 +102,51 @@ public class GameState {
         return currentQuestionNum;
     }
     public int getCurrentPrize(){
-        return currentPrize;
+        return ladder.prize(currentTier);
     }
     public int getGuaranteedPrize(){
-        return LastPrize;
+        return ladder.prize(guaranteedTier);
+    }
+    public PrizeLadder getLadder(){
+        return ladder;
+    }
+    public int getCurrentTier(){
+        return currentTier;
+    }
+    public int getGuaranteedTier(){
+        return guaranteedTier;
+    }
+    // the bank number of the current question
+    public int getBankNumber(){
+        return getBankNumber(getQuestionNumber());
+    }
+    // the bank number of question n of this game (-1 past the end of a dealt game)
+    public int getBankNumber(int questionNumber){
+        if(questionOrder == null){
+            return questionNumber;
+        }
+        return questionNumber >= 1 && questionNumber <= questionOrder.length ? questionOrder[questionNumber - 1] : -1;
+    }
+    // the bank numbers this game was dealt, null when it plays the bank in order
+    public int[] getQuestionOrder(){
+        return questionOrder == null ? null : questionOrder.clone();
+    }
+    // the answer order of the current question as an OptionShuffle code
+    public int getOptionOrder(){
+        return optionOrderOf(getQuestionNumber());
+    }
+    // the answer order of question n
+    byte optionOrderOf(int questionNumber){
+        return optionOrder == null || questionNumber < 1 || questionNumber > optionOrder.length
+                ? OptionShuffle.IDENTITY : optionOrder[questionNumber - 1];
+    }
+    // the bank option (0-3) behind an answer slot of the current question
+    public int toBankOption(int shown){
+        return OptionShuffle.toBank(getOptionOrder(), shown);
+    }
+    // the seed this game was dealt from (replay it with GameEngine.startGame(name, seed))
+    public long getSeed(){
+        return seed;
     }
     public boolean hasUsed5050(){
         return hasUsed5050;
@@ -71,6 +169,27 @@ public class GameState {
         this.hasUsedLifeline = used;
     }
     
+    // records a lifeline being used, kept until the session is written
+    public void recordLifeline(LifelineUse use){
+        if(lifelineUses == null){
+            lifelineUses = new java.util.ArrayList<>(2);
+        }
+        lifelineUses.add(use);
+    }
+    // the lifelines used so far this game, in the order they were used
+    public java.util.List<LifelineUse> getLifelineUses(){
+        return lifelineUses == null ? java.util.List.of() : java.util.List.copyOf(lifelineUses);
+    }
+    
+    // the id GameJournal logs this game under (0 = not logged yet); kept with the game so
+    // every view of it, and the game after a resume, stays under one id
+    long getJournalId(){
+        return journalId;
+    }
+    void setJournalId(long id){
+        this.journalId = id;
+    }
+    
     // helper method to move to next question
     public void nextQuestion(){
         this.currentQuestionNum++;
@@ -78,8 +197,8 @@ public class GameState {
     
     // helper method to update prize values when the player answers question correctly
     public void updatePrize(){
-        this.currentPrize = MoneyTier.currentPrize(currentQuestionNum);
-        this.LastPrize = MoneyTier.payoutLoss(currentQuestionNum);
+        this.currentTier = Math.min(currentQuestionNum, ladder.size());
+        this.guaranteedTier = ladder.safeTier(currentQuestionNum);
     }
     
     // method to mark the game over
@@ -91,6 +210,6 @@ public class GameState {
     public void hasWon(){
         this.won = true;
         this.gameOver = true;
-        this.currentPrize = MoneyTier.currentPrize(15);
+        this.currentTier = ladder.size(); // top of the ladder
     }   
 }
@@ -0,0 +1,234 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * What this class does:
+ *  - A read-only QuestionBank that only keeps the small part of every question in
+ *    memory (id, correct option and tier: 10 bytes a question) and fetches the
+ *    text (stem and four answers) from a TextSource when a game asks for it.
+ *  - Fetched questions go into an LRU cache with a fixed number of entries, so
+ *    the heap stays bounded however big the bank is while the questions being
+ *    played right now stay hot.
+ *  - prefetch(n) (called by GameEngine while the player is thinking) loads the
+ *    next question on a background thread, so the fetch is usually done before
+ *    the player answers. Asking for a question whose prefetch is still running
+ *    waits for it rather than fetching the text a second time.
+ *  - Counts cache hits, misses, prefetches and evictions; stats() returns them.
+ *  - Text comes from Derby (GameRepository.lazyQuestionBank, which questionSnapshot
+ *    uses for very big tables) or from a compiled questions.qbin snapshot (fromSnapshot).
+ */
+public final class LazyQuestionBank extends QuestionBank {
+
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    /**
+     * Where the text of a question comes from. Returns stem, A, B, C, D.
+     */
+    @FunctionalInterface
+    public interface TextSource {
+        String[] load(int number, long id);
+    }
+
+    /**
+     * Cache counters since the bank was built.
+     */
+    public record Stats(long hits, long misses, long prefetches, long evictions, int cached) {
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+    }
+
+    // one background thread for every lazy bank, daemon so it never keeps the app alive
+    private static final ExecutorService PREFETCHER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "question-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final long[] ids;
+    private final byte[] correct;
+    private final byte[] tiers;
+    private final TextSource source;
+    private final Map<Integer, Question> cache; // access order, guarded by itself
+    private final Map<Integer, CompletableFuture<Question>> inFlight = new ConcurrentHashMap<>(); // prefetches running
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder prefetches = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // constructor, entry i of the arrays is question i + 1
+    public LazyQuestionBank(long[] ids, byte[] correct, byte[] tiers, TextSource source, int cacheSize) {
+        super(java.util.List.of());
+        if (source == null) throw new NullPointerException("source");
+        if (ids.length != correct.length || ids.length != tiers.length) {
+            throw new IllegalArgumentException("ids, correct and tiers must be the same length");
+        }
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("cacheSize must be at least 1");
+        }
+        this.ids = ids;
+        this.correct = correct;
+        this.tiers = tiers;
+        this.source = source;
+        this.cache = new LinkedHashMap<>(Math.min(cacheSize, 1024) * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Question> eldest) {
+                if (size() > cacheSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // this method wraps a compiled snapshot: id, correct and tier come from its offset table,
+    // text is only decoded (and cached) for the questions games actually ask
+    public static LazyQuestionBank fromSnapshot(CompiledQuestionBank snapshot, int cacheSize) {
+        int n = snapshot.size();
+        long[] ids = new long[n];
+        byte[] correct = new byte[n];
+        byte[] tiers = new byte[n];
+        for (int i = 1; i <= n; i++) {
+            ids[i - 1] = snapshot.idOf(i);
+            correct[i - 1] = (byte) snapshot.correctOf(i);
+            tiers[i - 1] = (byte) snapshot.tierOf(i);
+        }
+        return new LazyQuestionBank(ids, correct, tiers, (number, id) -> {
+            Question q = snapshot.getByNumber(number);
+            return new String[]{q.getQuestion(), q.getOption(0).getText(), q.getOption(1).getText(),
+                q.getOption(2).getText(), q.getOption(3).getText()};
+        }, cacheSize);
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    @Override
+    public Question getByNumber(int index) {
+        check(index);
+        Question q;
+        synchronized (cache) {
+            q = cache.get(index);
+        }
+        if (q != null) {
+            hits.increment();
+            return q;
+        }
+        // waiting for a prefetch that is already fetching counts as a hit: the prefetch
+        // paid for the fetch, only a fetch made here is a miss
+        CompletableFuture<Question> pending = inFlight.get(index);
+        if (pending != null) {
+            try {
+                q = pending.join();
+                hits.increment();
+                return q;
+            } catch (CompletionException | CancellationException e) {
+                // the prefetch failed, fetch it here instead
+            }
+        }
+        // a prefetch caches before it leaves inFlight, so look again before fetching
+        synchronized (cache) {
+            q = cache.get(index);
+        }
+        if (q != null) {
+            hits.increment();
+            return q;
+        }
+        misses.increment();
+        return load(index);
+    }
+
+    @Override
+    public int tierOf(int index) {
+        check(index);
+        return tiers[index - 1];
+    }
+
+    // the database id of question n, without loading its text
+    @Override
+    public long idOf(int index) {
+        check(index);
+        return ids[index - 1];
+    }
+
+    // the correct option of question n, without loading its text
+    public int correctOf(int index) {
+        check(index);
+        return correct[index - 1];
+    }
+
+    // this method queues question n to be loaded in the background, unless it is already
+    // cached or on its way
+    @Override
+    public void prefetch(int index) {
+        check(index);
+        synchronized (cache) {
+            if (cache.containsKey(index)) return;
+        }
+        CompletableFuture<Question> pending = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(index, pending) != null) return;
+        try {
+            PREFETCHER.execute(() -> {
+                try {
+                    pending.complete(load(index));
+                    prefetches.increment();
+                } catch (RuntimeException e) {
+                    // a failed prefetch is only a lost head start, getByNumber will try again
+                    pending.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(index, pending);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(index, pending);
+            pending.cancel(false);
+        }
+    }
+
+    // this method returns the cache counters
+    public Stats stats() {
+        int cached;
+        synchronized (cache) {
+            cached = cache.size();
+        }
+        return new Stats(hits.sum(), misses.sum(), prefetches.sum(), evictions.sum(), cached);
+    }
+
+    // helper method that fetches the text outside the lock and caches the question
+    private Question load(int index) {
+        String[] text = source.load(index, ids[index - 1]);
+        Question q = Question.of(ids[index - 1], tiers[index - 1],
+                text[0], text[1], text[2], text[3], text[4], correct[index - 1]);
+        synchronized (cache) {
+            Question raced = cache.putIfAbsent(index, q);
+            return raced == null ? q : raced;
+        }
+    }
+
+    private void check(int index) {
+        if (index < 1 || index > ids.length) {
+            throw new IndexOutOfBoundsException("question size must be between 1 and " + ids.length);
+        }
+    }
+}
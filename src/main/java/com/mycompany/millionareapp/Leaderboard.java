@@ -0,0 +1,116 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * What this class does:
+ *  - Keeps the best N finished sessions in memory, sorted the same way as the
+ *    leaderboard SQL (winnings high to low, then newest first).
+ *  - Adding a finished game is O(log N): insert into the sorted set and drop the
+ *    lowest entry once there are more than N.
+ *  - Starts out "not loaded"; the repository fills it once from the database and
+ *    after that keeps it up to date from finishSession.
+ */
+public final class Leaderboard {
+
+    // best first: winnings desc, finished desc, then session id so entries never tie
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparingInt(Entry::winnings).reversed()
+            .thenComparing(Entry::finishedAt, Comparator.reverseOrder())
+            .thenComparing(Comparator.comparingLong(Entry::sessionId).reversed());
+
+    private final int capacity;
+    private final TreeSet<Entry> top = new TreeSet<>(ORDER);
+    private final Map<Long, Entry> bySession = new HashMap<>();
+    private boolean loaded;
+
+    /**
+     * One finished session on the leaderboard.
+     */
+    public record Entry(long sessionId, String player, int winnings, Timestamp finishedAt) {
+
+        // same row shape topSessions has always returned: {name, winnings, finishedAt}
+        Object[] toRow() {
+            return new Object[]{player, winnings, finishedAt};
+        }
+    }
+
+    // constructor
+    public Leaderboard(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("leaderboard capacity must be at least 1");
+        }
+        this.capacity = capacity;
+    }
+    // how many entries are kept in memory
+    public int capacity() {
+        return capacity;
+    }
+    // true once load() has been called with the database contents
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+    // replaces everything with the given rows (best first, at most capacity of them)
+    public synchronized void load(List<Entry> entries) {
+        top.clear();
+        bySession.clear();
+        loaded = true;
+        for (Entry e : entries) {
+            offer(e);
+        }
+    }
+    // forgets the contents, the next read has to load from the database again
+    public synchronized void invalidate() {
+        loaded = false;
+        top.clear();
+        bySession.clear();
+    }
+    // adds or updates a finished session, ignored until the board has been loaded
+    public synchronized void offer(Entry e) {
+        if (!loaded) {
+            return;
+        }
+        Entry old = bySession.remove(e.sessionId());
+        if (old != null) {
+            top.remove(old);
+            // a session that moved down might now rank below rows we already dropped
+            if (ORDER.compare(e, old) > 0 && top.size() + 1 >= capacity) {
+                invalidate();
+                return;
+            }
+        }
+        if (top.size() >= capacity && ORDER.compare(e, top.last()) > 0) {
+            return; // not good enough to make the board
+        }
+        top.add(e);
+        bySession.put(e.sessionId(), e);
+        if (top.size() > capacity) {
+            Entry dropped = top.pollLast();
+            bySession.remove(dropped.sessionId());
+        }
+    }
+    // best rows first, in the {name, winnings, finishedAt} shape
+    public synchronized List<Object[]> top(int limit) {
+        List<Object[]> rows = new ArrayList<>(Math.min(limit, top.size()));
+        for (Entry e : top) {
+            if (rows.size() >= limit) {
+                break;
+            }
+            rows.add(e.toRow());
+        }
+        return rows;
+    }
+}
@@ -34,5 +34,10 @@ public class LifeLine {
         lifeLineUsed = true;
         return q.getCorrectAnswer();
     }
+    // the correct answer of a question without touching any "used" flag
+    // (GameEngine keeps that flag in the GameState instead)
+    public static int correctAnswerOf(Question q){
+        return q == null ? -1 : q.getCorrectAnswer();
+    }
  
 }
@@ -0,0 +1,22 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp;
+
+import java.time.Instant;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * One lifeline being used: which one, on which question (database id) and at
+ * which step of the ladder. GameEngine records these in the GameState as they
+ * happen and they are written to LIFELINE_USE in one batch when the session ends.
+ */
+public record LifelineUse(String name, long questionId, int questionNumber, Instant usedAt) {
+
+    // names stored in LIFELINE_USE.NAME
+    public static final String FIFTY_FIFTY = "FIFTY_FIFTY";
+    public static final String REVEAL = "REVEAL";
+}
@@ -14,8 +14,10 @@ import java.nio.file.Paths;
  * ChatGPT assisted with this class.
  *
  * Entry point for the GUI version. Runs on the Swing EDT, initializes the
- * embedded Apache Derby database (creates tables and seeds from data/questions.txt
- * on first run), builds the GameUI and GUIController, and shows the main window.
+ * embedded Apache Derby database (creates tables and keeps questions in step with
+ * data/questions.txt), picks the prize ladder from data/ladders.txt (CLASSIC unless one is
+ * named as the first argument or with -Dladder=NAME), opens the game checkpoint file and
+ * event journal, builds the GameUI and GUIController, and shows the main window.
  * Startup wiring only — game play logic and database code live in their own classes.
  */
 
@@ -31,31 +33,77 @@ public class MillionareApp {
             // DB bootstrap
             GameRepository repo = new GameRepository("db/MillionaireDB");
             repo.ensureSchema();
+            repo.loadLeaderboard();
 
-            // Seed questions once (safe to ignore failures)
+            // Keep QUESTION in step with the questions file (safe to ignore failures).
+            // An unchanged file is recognised by its fingerprint and not parsed at all, so
+            // startup doesn't need the compiled questions.qbin snapshot any more.
             try {
                 FileQuestionRepository fileRepo =
                         new FileQuestionRepository(java.nio.file.Paths.get("data", "questions.txt"));
-                QuestionBank bank = fileRepo.loadAll();
-
-                java.util.List<Question> starter = new java.util.ArrayList<>();
-                for (int i = 1; i <= bank.size(); i++) {
-                    starter.add(bank.getByNumber(i));
-                }
-                int inserted = repo.seedIfEmpty(starter);
-                if (inserted > 0) {
-                    System.out.println("Seeded " + inserted + " questions.");
+                GameRepository.QuestionSync sync = repo.syncQuestions(fileRepo);
+                if (sync.changed()) {
+                    System.out.println("Questions synced: " + sync);
                 }
-            } catch (Exception ignore) {
+            } catch (Exception e) {
                 // Keep GUI usable even if seeding fails.
+                System.err.println("Question sync skipped: " + e.getMessage());
             }
 
+            PrizeLadder ladder = chooseLadder(args.length > 0 ? args[0] : System.getProperty("ladder", "CLASSIC"));
+
             // UI and controller setup
             GameUI ui = new GameUI();
-            GUIController controller = new GUIController(ui, /* engine */ null, repo);
+            SessionWriteBehind sessions = new SessionWriteBehind(repo);
+            sessions.installShutdownHook(); // Quit calls System.exit, flush queued sessions first
+            // games in progress survive a crash or quit (safe to run without)
+            SessionCheckpoints checkpoints = null;
+            try {
+                // one file per ladder, so switching ladders doesn't throw the other one's games away
+                String cpFile = ladder.getName().equals("CLASSIC") ? "checkpoints.bin"
+                        : "checkpoints-" + ladder.getName().toLowerCase(java.util.Locale.ROOT) + ".bin";
+                checkpoints = SessionCheckpoints.open(Paths.get("data", cpFile), ladder);
+                SessionCheckpoints toClose = checkpoints;
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        toClose.close();
+                    } catch (java.io.IOException e) {
+                        System.err.println("Checkpoint close failed: " + e.getMessage());
+                    }
+                }, "checkpoint-shutdown"));
+            } catch (java.io.IOException e) {
+                System.err.println("Game checkpoints disabled: " + e.getMessage());
+            }
+            GUIController controller = new GUIController(ui, /* engine */ null, repo, sessions, checkpoints, ladder);
+            // full game history (every answer and lifeline) goes to an append-only journal
+            try {
+                GameJournal journal = GameJournal.open(Paths.get("data", "journal"));
+                journal.installShutdownHook();
+                controller.addEngineListener(journal);
+            } catch (java.io.IOException e) {
+                System.err.println("Game journal disabled: " + e.getMessage());
+            }
             controller.start();
             ui.setVisible(true);
         });
     }
+
+    // helper that loads data/ladders.txt and returns the ladder with this name,
+    // CLASSIC if the file can't be read or has no such ladder
+    private static PrizeLadder chooseLadder(String name) {
+        try {
+            java.util.Map<String, PrizeLadder> ladders = PrizeLadder.loadAll();
+            for (PrizeLadder l : ladders.values()) {
+                if (l.getName().equalsIgnoreCase(name.trim())) {
+                    return l;
+                }
+            }
+            System.err.println("No prize ladder called " + name + " in data/ladders.txt (have "
+                    + ladders.keySet() + "), playing CLASSIC");
+        } catch (java.io.IOException | IllegalArgumentException e) {
+            System.err.println("Prize ladders not loaded, playing CLASSIC: " + e.getMessage());
+        }
+        return PrizeLadder.classic();
+    }
 }
 
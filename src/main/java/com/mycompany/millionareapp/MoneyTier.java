@@ -15,6 +15,10 @@ package com.mycompany.millionareapp;
  * Q10 = $32,000). If you lose after passing one of these, you take home that 
  * safe amount. Provides tiny helpers to look up prizes by question number, 
  * check if a step is safe, and work out payouts for losing or walking away.
+ * 
+ * The lookups use arrays indexed by question number that are filled once when the
+ * enum loads, so none of them loop over values(). Other ladder shapes (shorter games,
+ * different safe havens) live in PrizeLadder; this enum is the classic 15-step show.
 */
 
 public enum MoneyTier {
@@ -38,6 +42,25 @@ public enum MoneyTier {
     private final int questionNumber;
     private final int prizeMoney;
     private final boolean safeHaven;
+    
+    // lookup tables indexed by question number (index 0 = nothing answered yet)
+    private static final MoneyTier[] BY_NUMBER;
+    private static final int[] LOSS_PAYOUT;
+    static {
+        MoneyTier[] all = values();
+        BY_NUMBER = new MoneyTier[all.length + 1];
+        LOSS_PAYOUT = new int[all.length + 1];
+        for(MoneyTier t : all){
+            BY_NUMBER[t.questionNumber] = t;
+        }
+        int safe = 0;
+        for(int n = 1; n <= all.length; n++){
+            if(BY_NUMBER[n].safeHaven){
+                safe = BY_NUMBER[n].prizeMoney;
+            }
+            LOSS_PAYOUT[n] = safe;
+        }
+    }
     // basic enum constructor to initialise my variables
     MoneyTier(int questionNumber, int prizeMoney, boolean safeHaven){
         this.questionNumber = questionNumber;
@@ -58,12 +81,10 @@ public enum MoneyTier {
     }
     //method to find the money tier by the question number
     public static MoneyTier byNumber(int number){
-        for(MoneyTier t : values()){
-            if(t.questionNumber == number){
-                return t;
-            }
+        if(number < 1 || number >= BY_NUMBER.length){
+            return null;
         }
-        return null;
+        return BY_NUMBER[number];
     }
     
     //method to check if safe haven is the current question number
@@ -79,14 +100,10 @@ public enum MoneyTier {
     }
     //mthod to get the loss payout after the player loses
     public static int payoutLoss(int lastCorrect){
-        int safeHavenPrize = 0;
-        for(MoneyTier t : values()){
-            if(t.getNumber() <= lastCorrect && t.getSafeHaven()){
-                safeHavenPrize = t.prizeMoney;
-                
-            }
+        if(lastCorrect < 1){
+            return 0;
         }
-        return safeHavenPrize;
+        return LOSS_PAYOUT[Math.min(lastCorrect, LOSS_PAYOUT.length - 1)];
     }
     // method to get the payout if the player quits halfway through the game
     public static int walkAwayPay(int lastCorrect){
@@ -0,0 +1,238 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * What this class does:
+ *  - A read-only QuestionBank that keeps its questions outside the Java heap, for
+ *    banks with millions of questions.
+ *  - Every distinct piece of text (stems and answers) is stored once as UTF-8 in
+ *    direct ByteBuffers, so answers like "True" or "None of the above" cost 4 bytes
+ *    per use (an offset) instead of a String each.
+ *  - Each question is one 32 byte record, also off-heap: five int text offsets, the
+ *    correct index and tier as bytes, and the database id.
+ *  - Question objects are only built when getByNumber asks for one, so the heap
+ *    holds a handful of buffer objects no matter how big the bank is.
+ *  - Text uses the same [int length][UTF-8 bytes] encoding as CompiledQuestionBank.
+ *
+ * Build one with builder() (or copyOf) and add questions in order.
+ */
+public final class OffHeapQuestionBank extends QuestionBank {
+
+    // text lives in 16 MB segments, an offset is (segment << TEXT_BITS) | position
+    private static final int TEXT_BITS = 24;
+    private static final int TEXT_SEGMENT = 1 << TEXT_BITS;
+    // question records: 32 bytes each, 32k records (1 MB) per segment
+    private static final int RECORD_SIZE = 32;
+    private static final int RECORD_BITS = 15;
+    private static final int FIRST_SEGMENT = 64 * 1024;
+
+    private final ByteBuffer[] text;
+    private final ByteBuffer[] records;
+    private final int count;
+    private final int uniqueStrings;
+    private final long textBytes;
+
+    private OffHeapQuestionBank(Builder b) {
+        super(List.of());
+        this.text = b.text.finish();
+        this.records = b.records.finish();
+        this.count = b.count;
+        this.uniqueStrings = b.offsets.size();
+        this.textBytes = b.textBytes;
+    }
+
+    // this method starts an empty builder
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // this method copies any bank off-heap, keeping the order
+    public static OffHeapQuestionBank copyOf(QuestionBank bank) {
+        Builder b = builder();
+        for (int i = 1; i <= bank.size(); i++) {
+            b.add(bank.getByNumber(i));
+        }
+        return b.build();
+    }
+
+    /**
+     * Collects questions and writes them off-heap as they arrive. The map used to
+     * find repeated text is dropped once build() is called.
+     */
+    public static final class Builder {
+        private final Segments text = new Segments(TEXT_BITS);
+        private final Segments records = new Segments(RECORD_BITS + 5);
+        private Map<String, Integer> offsets = new HashMap<>();
+        private int count;
+        private long textBytes;
+        private boolean built;
+
+        private Builder() {
+        }
+
+        // this method appends one question
+        public Builder add(Question q) {
+            if (built) throw new IllegalStateException("bank already built");
+            if (q == null) throw new NullPointerException("question");
+            int stem = intern(q.getQuestion());
+            int a = intern(q.getOption(0).getText());
+            int b = intern(q.getOption(1).getText());
+            int c = intern(q.getOption(2).getText());
+            int d = intern(q.getOption(3).getText());
+            records.reserve(RECORD_SIZE);
+            records.current.putInt(stem).putInt(a).putInt(b).putInt(c).putInt(d)
+                    .put((byte) q.getCorrectAnswer()).put((byte) q.getTier()).put((byte) 0).put((byte) 0)
+                    .putLong(q.getId());
+            count++;
+            return this;
+        }
+
+        // the offset of s in the text segments, writing it the first time it is seen
+        private int intern(String s) {
+            Integer known = offsets.get(s);
+            if (known != null) {
+                return known;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            int at = text.reserve(4 + bytes.length);
+            text.current.putInt(bytes.length).put(bytes);
+            textBytes += 4 + bytes.length;
+            offsets.put(s, at);
+            return at;
+        }
+
+        // this method finishes the bank; the builder can't be used afterwards
+        public OffHeapQuestionBank build() {
+            if (built) throw new IllegalStateException("bank already built");
+            built = true;
+            OffHeapQuestionBank bank = new OffHeapQuestionBank(this);
+            offsets = Map.of();
+            return bank;
+        }
+    }
+
+    // a list of direct buffers that are filled one after another; the last one
+    // starts small and doubles so tiny banks don't pay for a whole segment
+    private static final class Segments {
+        private final int bits;
+        private final int segmentSize;
+        private final List<ByteBuffer> done = new ArrayList<>();
+        ByteBuffer current;
+
+        Segments(int bits) {
+            this.bits = bits;
+            this.segmentSize = 1 << bits;
+        }
+
+        // makes room for n contiguous bytes in the current segment and returns their offset
+        int reserve(int n) {
+            if (n > segmentSize) {
+                throw new IllegalArgumentException("text of " + n + " bytes is too long to store");
+            }
+            if (current == null || current.position() + n > segmentSize) {
+                if (current != null) {
+                    done.add(current);
+                }
+                if (done.size() >= (1 << (31 - bits))) {
+                    throw new IllegalStateException("off-heap question bank is full");
+                }
+                current = ByteBuffer.allocateDirect(Math.min(segmentSize, Math.max(FIRST_SEGMENT, n)));
+            } else if (current.remaining() < n) {
+                int grown = Math.min(segmentSize, Math.max(current.capacity() * 2, current.position() + n));
+                ByteBuffer bigger = ByteBuffer.allocateDirect(grown);
+                current.flip();
+                bigger.put(current);
+                current = bigger;
+            }
+            return (done.size() << bits) | current.position();
+        }
+
+        // the filled segments, the last one trimmed to what was used
+        ByteBuffer[] finish() {
+            List<ByteBuffer> all = new ArrayList<>(done);
+            if (current != null) {
+                ByteBuffer last = ByteBuffer.allocateDirect(current.position());
+                current.flip();
+                last.put(current);
+                all.add(last);
+                current = null;
+            }
+            return all.toArray(new ByteBuffer[0]);
+        }
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    // builds a Question view of record n
+    @Override
+    public Question getByNumber(int index) {
+        if (index < 1 || index > count) {
+            throw new IndexOutOfBoundsException("question size must be between 1 and " + count);
+        }
+        int n = index - 1;
+        ByteBuffer seg = records[n >>> RECORD_BITS];
+        int at = (n & ((1 << RECORD_BITS) - 1)) * RECORD_SIZE;
+        return Question.of(seg.getLong(at + 24), seg.get(at + 21),
+                string(seg.getInt(at)),
+                string(seg.getInt(at + 4)),
+                string(seg.getInt(at + 8)),
+                string(seg.getInt(at + 12)),
+                string(seg.getInt(at + 16)),
+                seg.get(at + 20));
+    }
+
+    // read straight from the record, no text decoded
+    @Override
+    public int tierOf(int index) {
+        return records[segmentOf(index)].get(recordAt(index) + 21);
+    }
+    @Override
+    public long idOf(int index) {
+        return records[segmentOf(index)].getLong(recordAt(index) + 24);
+    }
+    private int segmentOf(int index) {
+        if (index < 1 || index > count) {
+            throw new IndexOutOfBoundsException("question size must be between 1 and " + count);
+        }
+        return (index - 1) >>> RECORD_BITS;
+    }
+    private static int recordAt(int index) {
+        return ((index - 1) & ((1 << RECORD_BITS) - 1)) * RECORD_SIZE;
+    }
+
+    private String string(int offset) {
+        return CompiledQuestionBank.utf8At(text[offset >>> TEXT_BITS], offset & (TEXT_SEGMENT - 1));
+    }
+
+    // number of distinct strings stored (stems and answers together)
+    public int uniqueStrings() {
+        return uniqueStrings;
+    }
+    // bytes of text stored off-heap, after de-duplication
+    public long textBytes() {
+        return textBytes;
+    }
+    // off-heap bytes in use, text and question records together
+    public long offHeapBytes() {
+        long n = 0;
+        for (ByteBuffer b : text) n += b.capacity();
+        for (ByteBuffer b : records) n += b.capacity();
+        return n;
+    }
+}
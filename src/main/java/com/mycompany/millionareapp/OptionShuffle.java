@@ -0,0 +1,83 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp;
+
+import java.util.SplittableRandom;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * What this class does:
+ *  - Encodes the order a question's four answers are shown in as one byte: the
+ *    number (0-23) of one of the 24 orderings of A-D. 0 is the bank's own order.
+ *  - Turns a shown option back into the bank's option and the other way round,
+ *    so answers and lifelines can be checked against the shared question.
+ *  - view() builds the shuffled Question a game shows; the shared bank is never
+ *    changed.
+ */
+public final class OptionShuffle {
+
+    public static final int IDENTITY = 0;
+    public static final int PERMUTATIONS = 24;
+
+    // SHOWN[code][slot] = bank option shown in that slot, ORIGINAL is the inverse
+    private static final byte[][] SHOWN = new byte[PERMUTATIONS][4];
+    private static final byte[][] ORIGINAL = new byte[PERMUTATIONS][4];
+
+    static {
+        int code = 0;
+        for (int a = 0; a < 4; a++) {
+            for (int b = 0; b < 4; b++) {
+                for (int c = 0; c < 4; c++) {
+                    if (a == b || a == c || b == c) continue;
+                    int d = 6 - a - b - c;
+                    byte[] p = {(byte) a, (byte) b, (byte) c, (byte) d};
+                    SHOWN[code] = p;
+                    for (int slot = 0; slot < 4; slot++) {
+                        ORIGINAL[code][p[slot]] = (byte) slot;
+                    }
+                    code++;
+                }
+            }
+        }
+    }
+
+    private OptionShuffle() {
+    }
+
+    // this method picks one of the 24 orders
+    public static byte random(SplittableRandom random) {
+        return (byte) random.nextInt(PERMUTATIONS);
+    }
+
+    // the bank option shown in slot shown
+    public static int toBank(int code, int shown) {
+        return SHOWN[check(code)][shown];
+    }
+
+    // the slot the bank option is shown in
+    public static int toShown(int code, int bankOption) {
+        return ORIGINAL[check(code)][bankOption];
+    }
+
+    // this method returns the question as a game with this code sees it
+    public static Question view(Question q, int code) {
+        if (check(code) == IDENTITY) {
+            return q;
+        }
+        byte[] p = SHOWN[code];
+        return new Question(q.getId(), q.getTier(), q.getQuestion(),
+                q.getOption(p[0]), q.getOption(p[1]), q.getOption(p[2]), q.getOption(p[3]),
+                ORIGINAL[code][q.getCorrectAnswer()]);
+    }
+
+    private static int check(int code) {
+        if (code < 0 || code >= PERMUTATIONS) {
+            throw new IllegalArgumentException("option order must be between 0 and " + (PERMUTATIONS - 1));
+        }
+        return code;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * What this class does:
+ *  - Describes one prize ladder: how many questions a game has, what each one is
+ *    worth and which ones are safe havens.
+ *  - Works everything out up front into arrays indexed by question number, so
+ *    prize(), safePayout() and walkAway() are a single array read.
+ *  - Ladders can be loaded from a text file (data/ladders.txt) so different show
+ *    formats (a 10 question quick game, other safe havens...) can sit side by side.
+ *    One line per ladder:  NAME|prize1,prize2,...|safe question numbers
+ *    e.g.  QUICK|500,1000,2000,5000,10000,20000,50000,100000,250000,500000|3,7
+ *  - classic() is the normal 15 question ladder from MoneyTier.
+ */
+public final class PrizeLadder {
+
+    private static final PrizeLadder CLASSIC = fromMoneyTier();
+
+    private final String name;
+    private final int[] prize;       // prize[n] = money for answering question n, prize[0] = 0
+    private final int[] safeTier;    // safeTier[n] = last safe haven at or below n (0 if none)
+    private final boolean[] safe;
+
+    // constructor, prizes[i] is the prize for question i+1, safeQuestions are 1-based
+    public PrizeLadder(String name, int[] prizes, int... safeQuestions) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("ladder name required");
+        }
+        if (prizes == null || prizes.length == 0) {
+            throw new IllegalArgumentException("ladder " + name + " needs at least one prize");
+        }
+        int n = prizes.length;
+        this.name = name.trim();
+        this.prize = new int[n + 1];
+        this.safe = new boolean[n + 1];
+        this.safeTier = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            if (prizes[i] < 0 || (i > 0 && prizes[i] < prizes[i - 1])) {
+                throw new IllegalArgumentException("ladder " + name + " prizes must be non-negative and rising");
+            }
+            prize[i + 1] = prizes[i];
+        }
+        for (int q : safeQuestions) {
+            if (q < 1 || q > n) {
+                throw new IllegalArgumentException("ladder " + name + " safe haven " + q + " is off the ladder");
+            }
+            safe[q] = true;
+        }
+        for (int q = 1; q <= n; q++) {
+            safeTier[q] = safe[q] ? q : safeTier[q - 1];
+        }
+    }
+
+    // the normal 15 question show
+    public static PrizeLadder classic() {
+        return CLASSIC;
+    }
+
+    private static PrizeLadder fromMoneyTier() {
+        MoneyTier[] tiers = MoneyTier.values();
+        int[] prizes = new int[tiers.length];
+        int safeCount = 0;
+        for (MoneyTier t : tiers) {
+            prizes[t.getNumber() - 1] = t.getPrize();
+            if (t.getSafeHaven()) safeCount++;
+        }
+        int[] safes = new int[safeCount];
+        int i = 0;
+        for (MoneyTier t : tiers) {
+            if (t.getSafeHaven()) safes[i++] = t.getNumber();
+        }
+        return new PrizeLadder("CLASSIC", prizes, safes);
+    }
+
+    // loads every ladder in data/ladders.txt, keyed by name (file order kept)
+    public static Map<String, PrizeLadder> loadAll() throws IOException {
+        return loadAll(Paths.get("data", "ladders.txt"));
+    }
+
+    public static Map<String, PrizeLadder> loadAll(Path file) throws IOException {
+        List<String> lines = FileManager.readAllLines(file);
+        Map<String, PrizeLadder> out = new LinkedHashMap<>();
+        int lineNumber = 0;
+        for (String raw : lines) {
+            lineNumber++;
+            String l = raw.trim();
+            if (l.isEmpty() || l.startsWith("#")) continue;
+
+            String[] parts = l.split("\\|", -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("ladders.txt line: " + lineNumber
+                        + ", expected 3 fields (NAME|PRIZES|SAFE HAVENS)");
+            }
+            try {
+                PrizeLadder ladder = new PrizeLadder(parts[0], numbers(parts[1]), numbers(parts[2]));
+                out.put(ladder.getName(), ladder);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("ladders.txt line: " + lineNumber + ", " + e.getMessage(), e);
+            }
+        }
+        if (!out.containsKey(CLASSIC.getName())) {
+            out.put(CLASSIC.getName(), CLASSIC);
+        }
+        return out;
+    }
+
+    // helper to read "1,2,3" (empty means none)
+    private static int[] numbers(String csv) {
+        String t = csv.trim();
+        if (t.isEmpty()) {
+            return new int[0];
+        }
+        String[] parts = t.split(",");
+        int[] out = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            out[i] = Integer.parseInt(parts[i].trim());
+        }
+        return out;
+    }
+
+    // ladder name
+    public String getName() {
+        return name;
+    }
+    // number of questions in a full game
+    public int size() {
+        return prize.length - 1;
+    }
+    // the prize for getting question n right (0 outside the ladder)
+    public int prize(int n) {
+        return n < 1 || n >= prize.length ? 0 : prize[n];
+    }
+    // the top prize, what a winner takes home
+    public int topPrize() {
+        return prize[prize.length - 1];
+    }
+    // true if question n is a safe haven
+    public boolean isSafe(int n) {
+        return n >= 1 && n < safe.length && safe[n];
+    }
+    // the last safe haven at or below lastCorrect (0 if none yet)
+    public int safeTier(int lastCorrect) {
+        if (lastCorrect < 1) {
+            return 0;
+        }
+        return safeTier[Math.min(lastCorrect, safeTier.length - 1)];
+    }
+    // what you keep if you get the next question wrong
+    public int safePayout(int lastCorrect) {
+        return prize[safeTier(lastCorrect)];
+    }
+    // what you keep if you walk away after lastCorrect questions
+    public int walkAway(int lastCorrect) {
+        return prize(lastCorrect);
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + size() + " questions, top prize $" + topPrize() + ")";
+    }
+}
@@ -15,13 +15,23 @@ import java.util.List;
  * this class provides the logic for each individual question, it holds the question at the stem and then checks
  * that there are exactly for answers with only one correct option between a range of 0-3. it validates the four
  * non-null options in the constructor and provides simple get, correctness check and to string methods
+ * 
+ * questions loaded from the database also carry their QUESTION.ID (0 when the question
+ * didn't come from the database) so things like lifeline usage can point back at the row
+ * 
+ * questions can also carry a difficulty tier that lines up with the ladder (1 = first
+ * question ... 15 = the million), 0 means untagged
  */
 public final class Question {
 
+    // highest tier a question can be tagged with (stored as a byte in the binary banks)
+    public static final int MAX_TIER = 100;
     
     private final String q;
     private final AnswerOption a, b, c, d;
     private final int correctAnswer;
+    private final long id;
+    private final int tier;
     
     
     //simple constructor
@@ -31,6 +41,34 @@ public final class Question {
             AnswerOption c,
             AnswerOption d,
             int correctAnswer){
+        this(0L, q, a, b, c, d, correctAnswer);
+    }
+    
+    // constructor for questions that have a database id
+    public Question(long id,
+            String q, 
+            AnswerOption a, 
+            AnswerOption b,
+            AnswerOption c,
+            AnswerOption d,
+            int correctAnswer){
+        this(id, 0, q, a, b, c, d, correctAnswer);
+    }
+    
+    // constructor for questions with a database id and a difficulty tier
+    public Question(long id,
+            int tier,
+            String q, 
+            AnswerOption a, 
+            AnswerOption b,
+            AnswerOption c,
+            AnswerOption d,
+            int correctAnswer){
+        
+        //checking the tier fits in the ladder columns (0 = untagged)
+        if(tier < 0 || tier > MAX_TIER){
+            throw new IllegalArgumentException("tier must be between 0-" + MAX_TIER);
+        }
         
         //checking that question stem isnt empty
         if(q == null || q.trim().isEmpty()) {
@@ -55,10 +93,20 @@ public final class Question {
         this.c =c;
         this.d = d;
         this.correctAnswer = correctAnswer;
+        this.id = id;
+        this.tier = tier;
     }
     
     public static Question of(String stem, String A, String B, String C, String D, int correctIndex) {
-        return new Question(stem,
+        return of(0L, stem, A, B, C, D, correctIndex);
+    }
+    
+    public static Question of(long id, String stem, String A, String B, String C, String D, int correctIndex) {
+        return of(id, 0, stem, A, B, C, D, correctIndex);
+    }
+    
+    public static Question of(long id, int tier, String stem, String A, String B, String C, String D, int correctIndex) {
+        return new Question(id, tier, stem,
                 new AnswerOption(A),
                 new AnswerOption(B),
                 new AnswerOption(C),
@@ -66,6 +114,14 @@ public final class Question {
                 correctIndex);
     }
     
+    // database id, 0 if this question wasn't loaded from the database
+    public long getId(){
+        return id;
+    }
+    // difficulty tier (ladder step this question is meant for), 0 if untagged
+    public int getTier(){
+        return tier;
+    }
     // get question method
     public String getQuestion(){
         return q;
@@ -15,15 +15,39 @@ import java.util.List;
   - Lets you ask “how many questions do we have?”.
   - Lets you fetch a question by its 1-based number (Q1 = first, Q2 = second, etc.).
   - Uses a bounds check so you get a clear error if you ask for an invalid number.
+  - A bank made with copyOf() is read-only, so one bank can be shared by many games.
+  - Other banks (compiled, off-heap, lazy) extend this one and keep their questions
+    elsewhere.
  */
 
 
 public class QuestionBank {
     // TODO: private List<Question> questions; + methods above.
     
-    private final List<Question> questions = new ArrayList<>();
+    private final List<Question> questions;
+    private final boolean readOnly;
+    
+    public QuestionBank(){
+        this.questions = new ArrayList<>();
+        this.readOnly = false;
+    }
+    
+    // read-only bank over the given list; also used by banks that keep their
+    // questions somewhere else (they pass an empty list and override size/getByNumber)
+    protected QuestionBank(List<Question> questions){
+        this.questions = questions;
+        this.readOnly = true;
+    }
+    // makes a read-only bank holding the given questions in the same order
+    public static QuestionBank copyOf(List<Question> questions){
+        for(Question q : questions){
+            if(q == null) throw new NullPointerException("question");
+        }
+        return new QuestionBank(List.copyOf(questions));
+    }
     
     public void add(Question question){
+        if(readOnly) throw new UnsupportedOperationException("this question bank is read-only");
         if(question == null) throw new NullPointerException("question");
         questions.add(question);
     }
@@ -38,5 +62,18 @@ public class QuestionBank {
         }
         return questions.get(index - 1);
     }
+    // the tier of question n; banks that can answer this without building the
+    // whole Question (text and all) override it
+    public int tierOf(int index){
+        return getByNumber(index).getTier();
+    }
+    // the database id of question n (0 when it didn't come from the database)
+    public long idOf(int index){
+        return getByNumber(index).getId();
+    }
+    // hint that question n is about to be asked; banks that load text lazily can
+    // start fetching it in the background, everything else ignores it
+    public void prefetch(int index){
+    }
 
 }
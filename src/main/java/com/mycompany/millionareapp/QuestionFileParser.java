@@ -0,0 +1,228 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * What this class does:
+ *  - Reads a questions file (ID|QUESTION|A|B|C|D|CORRECT per line, optionally
+ *    followed by |TIER, the difficulty tier 1-15) as a stream,
+ *    one buffer at a time, so memory stays flat no matter how big the file is.
+ *  - Splits lines on '|' by scanning characters (no regex, no String[] per line)
+ *    and only creates Strings for the trimmed fields it actually keeps.
+ *  - Hands each good question to a Handler as soon as it is parsed.
+ *  - Doesn't stop at the first bad line: every malformed line is recorded with its
+ *    line number in the returned Report.
+ */
+public final class QuestionFileParser {
+
+    private static final int FIELDS = 7;
+    private static final int MAX_FIELDS = 8; // with the optional TIER
+    private static final int BUFFER = 64 * 1024;
+
+    private QuestionFileParser() { /* utility class; no instances */ }
+
+    /**
+     * Receives each question as soon as its line has been parsed.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        void question(int lineNumber, String id, Question question);
+    }
+
+    /**
+     * What happened while parsing: how many lines and questions, and every
+     * malformed line (only the first MAX_KEPT messages are kept, all are counted).
+     */
+    public static final class Report {
+        static final int MAX_KEPT = 1000;
+
+        private final String source;
+        private int lines;
+        private int questions;
+        private int errorCount;
+        private final List<String> errors = new ArrayList<>();
+
+        Report(String source) {
+            this.source = source;
+        }
+
+        void error(int lineNumber, String message) {
+            errorCount++;
+            if (errors.size() < MAX_KEPT) {
+                errors.add(source + " line: " + lineNumber + ", " + message);
+            }
+        }
+
+        public int getLines() {
+            return lines;
+        }
+        public int getQuestions() {
+            return questions;
+        }
+        public int getErrorCount() {
+            return errorCount;
+        }
+        public boolean hasErrors() {
+            return errorCount > 0;
+        }
+        // the first MAX_KEPT error messages, in file order
+        public List<String> getErrors() {
+            return List.copyOf(errors);
+        }
+        // one message listing every kept error, for exceptions and logs
+        public String summary() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(source).append(": ").append(errorCount).append(" malformed line(s)");
+            for (String e : errors) {
+                sb.append(System.lineSeparator()).append("  ").append(e);
+            }
+            if (errorCount > errors.size()) {
+                sb.append(System.lineSeparator()).append("  ... and ")
+                        .append(errorCount - errors.size()).append(" more");
+            }
+            return sb.toString();
+        }
+    }
+
+    // this method streams a questions file into the handler; a missing file is just empty
+    public static Report parse(Path file, Handler handler) throws IOException {
+        if (file == null) throw new NullPointerException("file");
+        Report report = new Report(file.getFileName() == null ? file.toString() : file.getFileName().toString());
+        if (Files.notExists(file)) {
+            return report;
+        }
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            parse(in, report, handler);
+        }
+        return report;
+    }
+
+    // this method streams from any reader (the caller closes it)
+    public static Report parse(Reader in, String sourceName, Handler handler) throws IOException {
+        Report report = new Report(sourceName);
+        parse(in, report, handler);
+        return report;
+    }
+
+    private static void parse(Reader in, Report report, Handler handler) throws IOException {
+        char[] buf = new char[BUFFER];
+        char[] line = new char[256];
+        int len = 0;
+        int[] bars = new int[MAX_FIELDS];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            for (int i = 0; i < n; i++) {
+                char c = buf[i];
+                if (c == '\n') {
+                    report.lines++;
+                    parseLine(line, len, report.lines, bars, report, handler);
+                    len = 0;
+                    continue;
+                }
+                if (len == line.length) {
+                    line = Arrays.copyOf(line, len * 2);
+                }
+                line[len++] = c;
+            }
+        }
+        if (len > 0) {
+            report.lines++;
+            parseLine(line, len, report.lines, bars, report, handler);
+        }
+    }
+
+    // one line: trim, skip blanks/comments, find the '|' positions, build the question
+    private static void parseLine(char[] line, int len, int lineNumber, int[] bars,
+            Report report, Handler handler) {
+        int start = 0;
+        int end = len;
+        while (start < end && line[start] <= ' ') start++;
+        while (end > start && line[end - 1] <= ' ') end--;
+        if (start == end || line[start] == '#') {
+            return;
+        }
+
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (line[i] == '|') {
+                if (count == MAX_FIELDS - 1) {
+                    count++; // too many, stop looking
+                    break;
+                }
+                bars[count++] = i;
+            }
+        }
+        if (count != FIELDS - 1 && count != MAX_FIELDS - 1) {
+            report.error(lineNumber, "expected 7 fields (ID|QUESTION|A|B|C|D|CORRECT) and an optional TIER");
+            return;
+        }
+        boolean hasTier = count == MAX_FIELDS - 1;
+
+        // CORRECT must be a single letter A-D (checked before allocating anything)
+        int cs = bars[FIELDS - 2] + 1;
+        int ce = hasTier ? bars[FIELDS - 1] : end;
+        while (cs < ce && line[cs] <= ' ') cs++;
+        while (ce > cs && line[ce - 1] <= ' ') ce--;
+        char letter = ce - cs == 1 ? Character.toUpperCase(line[cs]) : 0;
+        if (letter < 'A' || letter > 'D') {
+            report.error(lineNumber, "CORRECT must be either A, B, C or D");
+            return;
+        }
+
+        // TIER, when there, is a small whole number (digits only, no allocation)
+        int tier = 0;
+        if (hasTier) {
+            int ts = bars[FIELDS - 1] + 1;
+            int te = end;
+            while (ts < te && line[ts] <= ' ') ts++;
+            while (te > ts && line[te - 1] <= ' ') te--;
+            boolean ok = ts < te && te - ts <= 3;
+            for (int i = ts; ok && i < te; i++) {
+                char ch = line[i];
+                ok = ch >= '0' && ch <= '9';
+                tier = tier * 10 + (ch - '0');
+            }
+            if (!ok || tier < 1 || tier > Question.MAX_TIER) {
+                report.error(lineNumber, "TIER must be a number between 1 and " + Question.MAX_TIER);
+                return;
+            }
+        }
+
+        String id = field(line, start, bars[0]);
+        String stem = field(line, bars[0] + 1, bars[1]);
+        String a = field(line, bars[1] + 1, bars[2]);
+        String b = field(line, bars[2] + 1, bars[3]);
+        String c = field(line, bars[3] + 1, bars[4]);
+        String d = field(line, bars[4] + 1, bars[5]);
+        Question q;
+        try {
+            q = Question.of(0L, tier, stem, a, b, c, d, letter - 'A');
+        } catch (IllegalArgumentException e) {
+            report.error(lineNumber, e.getMessage());
+            return;
+        }
+        report.questions++;
+        handler.question(lineNumber, id, q);
+    }
+
+    // the trimmed text between from (inclusive) and to (exclusive)
+    private static String field(char[] line, int from, int to) {
+        while (from < to && line[from] <= ' ') from++;
+        while (to > from && line[to - 1] <= ' ') to--;
+        return new String(line, from, to - from);
+    }
+}
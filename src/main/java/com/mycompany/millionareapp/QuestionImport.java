@@ -0,0 +1,242 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * What this class does:
+ *  - Bulk-loads a (possibly huge) QuestionBank into QUESTION in chunks, one
+ *    transaction per chunk, so the driver never holds more than one chunk of
+ *    batched rows and a failure only loses the chunk it happened in.
+ *  - Each chunk commits together with an APP_META row saying how many questions
+ *    are in, so running the same import (same key) again resumes right after the
+ *    last committed chunk. A CompiledQuestionBank makes that skip free because
+ *    questions are read by number.
+ *  - Reports progress and throughput to a Listener after every chunk.
+ *  - For very large loads the QUESTION secondary indexes are dropped first and
+ *    built once at the end, which is much cheaper than updating them row by row.
+ *  - Imported rows are tagged with the import in QUESTION.SOURCE, so syncing the
+ *    questions file never touches them, and get positions from POS_BASE up, so
+ *    they come after the file's questions instead of mixing into its order. The
+ *    seed import (the file's own starter questions) is the exception: its rows
+ *    belong to the file and are left untagged.
+ *  - Questions without a tier are written with one from their place in the source
+ *    (the same rule TieredQuestionPools uses), so sampleGame can still find them by tier.
+ */
+public final class QuestionImport {
+
+    public static final int DEFAULT_CHUNK_SIZE = 5_000;
+    // loads with at least this many rows to go drop and rebuild the QUESTION indexes
+    public static final int INDEX_REBUILD_THRESHOLD = 100_000;
+    // imported positions start above this, the questions file keeps the numbers below it
+    public static final int POS_BASE = 1_000_000_000;
+
+    private static final String META_PREFIX = "import.";
+    private static final String DONE = "/done";
+    private static final String INSERT = "INSERT INTO QUESTION (STEM, OPTA, OPTB, OPTC, OPTD, CORRECT, POS, TIER, SOURCE, RAND_KEY) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, RANDOM())";
+
+    /**
+     * Told about every committed chunk.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void progress(Progress progress);
+    }
+
+    /**
+     * Where an import is: questions committed so far (including earlier runs), the
+     * size of the source, how many this run inserted and how long it has taken.
+     */
+    public record Progress(long committed, long total, long insertedThisRun, long elapsedNanos) {
+        public double questionsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : insertedThisRun * 1_000_000_000.0 / elapsedNanos;
+        }
+        public boolean done() {
+            return committed >= total;
+        }
+    }
+
+    /**
+     * What one run did. skipped is what earlier runs had already committed.
+     */
+    public record Result(long inserted, long skipped, long total, long elapsedNanos, boolean indexesRebuilt) {
+    }
+
+    private final GameRepository repo;
+    private final String key;
+    private final int chunkSize;
+    private final Listener listener;
+    private final boolean fileOwned; // seed rows: untagged and numbered from 1, syncQuestions adopts them
+
+    // constructor with the default chunk size and no progress reports
+    public QuestionImport(GameRepository repo, String key) {
+        this(repo, key, DEFAULT_CHUNK_SIZE, null);
+    }
+
+    // constructor, key names the import so a rerun can find where it got to
+    public QuestionImport(GameRepository repo, String key, int chunkSize, Listener listener) {
+        this(repo, key, chunkSize, listener, false);
+    }
+
+    // an import of the questions file's own starter questions (GameRepository.seedIfEmpty)
+    static QuestionImport seed(GameRepository repo, String key) {
+        return new QuestionImport(repo, key, DEFAULT_CHUNK_SIZE, null, true);
+    }
+
+    private QuestionImport(GameRepository repo, String key, int chunkSize, Listener listener, boolean fileOwned) {
+        if (repo == null) throw new NullPointerException("repo");
+        if (key == null || key.isEmpty() || META_PREFIX.length() + key.length() > 64) {
+            throw new IllegalArgumentException("import key must be 1-" + (64 - META_PREFIX.length()) + " characters");
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1");
+        }
+        this.repo = repo;
+        this.key = key;
+        this.chunkSize = chunkSize;
+        this.listener = listener;
+        this.fileOwned = fileOwned;
+    }
+
+    // this method returns how many questions earlier runs of this import committed
+    public long committed() {
+        String v = readMeta();
+        if (v == null) {
+            return 0;
+        }
+        return Long.parseLong(v.endsWith(DONE) ? v.substring(0, v.length() - DONE.length()) : v);
+    }
+
+    // true once a run of this import has committed its last chunk
+    public boolean isFinished() {
+        String v = readMeta();
+        return v != null && v.endsWith(DONE);
+    }
+
+    // this method imports source.getByNumber(committed()+1 .. size()) in chunks
+    public Result run(QuestionBank source) {
+        long total = source.size();
+        long start = committed();
+        if (isFinished() || total == 0) {
+            return new Result(0, start, total, 0, false);
+        }
+        if (start > total) {
+            throw new IllegalArgumentException("import " + key + " already committed " + start
+                    + " questions but the source only has " + total);
+        }
+
+        boolean rebuild = total - start >= INDEX_REBUILD_THRESHOLD;
+        long t0 = System.nanoTime();
+        long done = start;
+        try (Connection cn = repo.getConnection()) {
+            int base = fileOwned ? 0 : firstPos(cn, start);
+            if ((long) base + total > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("import " + key + " has too many questions to number");
+            }
+            if (rebuild) {
+                cn.setAutoCommit(true);
+                GameRepository.dropQuestionIndexes(cn);
+            }
+            try {
+                cn.setAutoCommit(false);
+                try (PreparedStatement ps = cn.prepareStatement(INSERT)) {
+                    while (done < total) {
+                        int n = (int) Math.min(chunkSize, total - done);
+                        try {
+                            for (int i = 1; i <= n; i++) {
+                                int number = (int) (done + i);
+                                bind(ps, source.getByNumber(number), base + number,
+                                        TieredQuestionPools.tierAt(number, (int) total, GameRepository.UNTAGGED_TIERS));
+                                ps.setString(9, fileOwned ? null : metaKey());
+                                ps.addBatch();
+                            }
+                            ps.executeBatch();
+                            long committed = done + n;
+                            GameRepository.writeMeta(cn, metaKey(),
+                                    committed == total ? committed + DONE : String.valueOf(committed));
+                            cn.commit();
+                        } catch (SQLException | RuntimeException e) {
+                            ps.clearBatch();
+                            cn.rollback();
+                            throw e;
+                        }
+                        done += n;
+                        if (listener != null) {
+                            listener.progress(new Progress(done, total, done - start, System.nanoTime() - t0));
+                        }
+                    }
+                }
+            } finally {
+                if (rebuild) {
+                    cn.setAutoCommit(true);
+                    GameRepository.createQuestionIndexes(cn);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Question import " + key + " failed after "
+                    + done + " of " + total + " questions", e);
+        } finally {
+            if (done > start) {
+                repo.questionsChanged();
+            }
+        }
+        return new Result(done - start, start, total, System.nanoTime() - t0, rebuild);
+    }
+
+    // helper method that finds the position before this import's first question: where an earlier
+    // run of it started, otherwise after every import already in the table
+    private int firstPos(Connection cn, long committed) throws SQLException {
+        if (committed > 0) {
+            try (PreparedStatement ps = cn.prepareStatement("SELECT MIN(POS) FROM QUESTION WHERE SOURCE = ?")) {
+                ps.setString(1, metaKey());
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next(); // an aggregate always has one row
+                    int min = rs.getInt(1);
+                    if (!rs.wasNull() && min > 0) {
+                        return min - 1;
+                    }
+                }
+            }
+        }
+        try (PreparedStatement ps = cn.prepareStatement("SELECT MAX(POS) FROM QUESTION WHERE SOURCE IS NOT NULL");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            int max = rs.getInt(1);
+            return rs.wasNull() ? POS_BASE : Math.max(POS_BASE, max);
+        }
+    }
+
+    // helper method to fill one INSERT row, pos is the question's number in the source past the base;
+    // an untagged question is given positionTier, the tier its place in the source stands for
+    private static void bind(PreparedStatement ps, Question q, int pos, int positionTier) throws SQLException {
+        ps.setString(1, q.getQuestion());
+        for (int i = 0; i < 4; i++) {
+            ps.setString(2 + i, q.getOption(i).getText());
+        }
+        ps.setInt(6, q.getCorrectAnswer());
+        ps.setInt(7, pos);
+        ps.setInt(8, q.getTier() != 0 ? q.getTier() : positionTier);
+    }
+
+    private String metaKey() {
+        return META_PREFIX + key;
+    }
+
+    private String readMeta() {
+        try (Connection cn = repo.getConnection()) {
+            return GameRepository.readMeta(cn, metaKey());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Reading import progress failed", e);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * What this class does:
+ *  - Loads every pack file (*.txt, same format as questions.txt) in a directory.
+ *  - Each file is parsed and validated by QuestionFileParser on its own fork-join
+ *    task, so a directory of packs loads about as fast as its biggest file on a
+ *    machine with enough cores.
+ *  - Results are merged in file name order, so the bank is the same on every run
+ *    no matter which task finished first.
+ *  - Bad lines from every pack (and IDs used by more than one pack) end up in one
+ *    report instead of stopping at the first problem.
+ */
+public final class QuestionPackLoader {
+
+    private final Path dir;
+    private final ForkJoinPool pool;
+
+    // constructor, loads from data/packs on the common pool
+    public QuestionPackLoader() {
+        this(Paths.get("data", "packs"));
+    }
+
+    public QuestionPackLoader(Path dir) {
+        this(dir, ForkJoinPool.commonPool());
+    }
+
+    // constructor with a specific pool (its parallelism is how many packs parse at once)
+    public QuestionPackLoader(Path dir, ForkJoinPool pool) {
+        if (dir == null) throw new NullPointerException("dir");
+        if (pool == null) throw new NullPointerException("pool");
+        this.dir = dir;
+        this.pool = pool;
+    }
+
+    /**
+     * The merged bank plus what went wrong across all packs.
+     */
+    public static final class Result {
+        private final QuestionBank bank;
+        private final List<QuestionFileParser.Report> reports;
+        private final List<String> duplicates;
+
+        Result(QuestionBank bank, List<QuestionFileParser.Report> reports, List<String> duplicates) {
+            this.bank = bank;
+            this.reports = reports;
+            this.duplicates = duplicates;
+        }
+
+        public QuestionBank getBank() {
+            return bank;
+        }
+        // one report per pack file, in load order
+        public List<QuestionFileParser.Report> getReports() {
+            return reports;
+        }
+        public int getErrorCount() {
+            int n = duplicates.size();
+            for (QuestionFileParser.Report r : reports) {
+                n += r.getErrorCount();
+            }
+            return n;
+        }
+        public boolean hasErrors() {
+            return getErrorCount() > 0;
+        }
+        // every pack's bad lines plus duplicate IDs, for exceptions and logs
+        public String summary() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(reports.size()).append(" pack(s), ").append(bank.size()).append(" question(s), ")
+                    .append(getErrorCount()).append(" error(s)");
+            for (QuestionFileParser.Report r : reports) {
+                if (r.hasErrors()) {
+                    sb.append(System.lineSeparator()).append(r.summary());
+                }
+            }
+            for (String d : duplicates) {
+                sb.append(System.lineSeparator()).append("  ").append(d);
+            }
+            return sb.toString();
+        }
+    }
+
+    // this method loads every pack and throws with the full report if any line was bad
+    public QuestionBank loadAll() throws IOException {
+        Result r = load();
+        if (r.hasErrors()) {
+            throw new IllegalArgumentException(r.summary());
+        }
+        return r.getBank();
+    }
+
+    // this method loads every pack it can and reports the problems instead of throwing
+    public Result load() throws IOException {
+        List<Path> files = packFiles();
+        Pack[] packs = new Pack[files.size()];
+        try {
+            pool.invoke(new ParseRange(files, packs, 0, packs.length));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        int total = 0;
+        for (Pack p : packs) {
+            total += p.questions.size();
+        }
+        List<Question> merged = new ArrayList<>(total);
+        List<QuestionFileParser.Report> reports = new ArrayList<>(packs.length);
+        List<String> duplicates = new ArrayList<>();
+        Map<String, String> seen = new HashMap<>(total * 2);
+        for (Pack p : packs) {
+            reports.add(p.report);
+            for (int i = 0; i < p.questions.size(); i++) {
+                String where = p.name + " line: " + p.lines.get(i);
+                String first = seen.putIfAbsent(p.ids.get(i), where);
+                if (first != null) {
+                    duplicates.add(where + ", duplicate ID " + p.ids.get(i) + " (first seen in " + first + ")");
+                }
+                merged.add(p.questions.get(i));
+            }
+        }
+        return new Result(QuestionBank.copyOf(merged), List.copyOf(reports), List.copyOf(duplicates));
+    }
+
+    // the pack files in name order
+    private List<Path> packFiles() throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.filter(p -> Files.isRegularFile(p) && p.getFileName().toString().endsWith(".txt"))
+                    .sorted((a, b) -> a.getFileName().toString().compareTo(b.getFileName().toString()))
+                    .toList();
+        }
+    }
+
+    // what one pack parsed to, kept in file order
+    private static final class Pack {
+        final String name;
+        final List<Question> questions = new ArrayList<>();
+        final List<String> ids = new ArrayList<>();
+        final List<Integer> lines = new ArrayList<>();
+        QuestionFileParser.Report report;
+
+        Pack(String name) {
+            this.name = name;
+        }
+    }
+
+    // splits the file list in half until one file is left, then parses it
+    // (ForkJoinTask is Serializable, but these tasks never leave the pool, hence transient)
+    private static final class ParseRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient List<Path> files;
+        private final transient Pack[] out;
+        private final int from;
+        private final int to;
+
+        ParseRange(List<Path> files, Pack[] out, int from, int to) {
+            this.files = files;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ParseRange(files, out, from, mid), new ParseRange(files, out, mid, to));
+                return;
+            }
+            if (from == to) {
+                return;
+            }
+            Path file = files.get(from);
+            Pack pack = new Pack(file.getFileName().toString());
+            try {
+                pack.report = QuestionFileParser.parse(file, (line, id, q) -> {
+                    pack.questions.add(q);
+                    pack.ids.add(id);
+                    pack.lines.add(line);
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            out[from] = pack;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp;
+
+import java.util.List;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * What this class does:
+ *  - Holds one read-only copy of every question in the QUESTION table.
+ *  - Remembers the question version it was loaded at, so the repository can tell
+ *    when the table has changed and a fresh snapshot is needed.
+ *  - The same snapshot (and its QuestionBank) is shared by every game, so pressing
+ *    Start doesn't reload or copy the questions.
+ *  - Big tables are held in an OffHeapQuestionBank so they stay out of the GC's way,
+ *    and bigger ones in a LazyQuestionBank that reads the text as games ask for it.
+ */
+public final class QuestionSnapshot {
+
+    private final long version;
+    private final QuestionBank bank;
+
+    // constructor, copies the list once into a read-only bank
+    public QuestionSnapshot(long version, List<Question> questions) {
+        this.version = version;
+        this.bank = QuestionBank.copyOf(questions);
+    }
+    // constructor for a bank that is already read-only (e.g. an OffHeapQuestionBank)
+    public QuestionSnapshot(long version, QuestionBank bank) {
+        if (bank == null) throw new NullPointerException("bank");
+        this.version = version;
+        this.bank = bank;
+    }
+    // the repository question version this snapshot was loaded at
+    public long getVersion() {
+        return version;
+    }
+    // the shared read-only bank
+    public QuestionBank getBank() {
+        return bank;
+    }
+    // number of questions in the snapshot
+    public int size() {
+        return bank.size();
+    }
+    // true when there is nothing to play
+    public boolean isEmpty() {
+        return bank.size() == 0;
+    }
+}
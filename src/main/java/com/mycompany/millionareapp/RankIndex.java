@@ -0,0 +1,123 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp;
+
+import java.util.Arrays;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * What this class does:
+ *  - Counts finished games per winnings "bucket", one bucket per prize on the
+ *    MoneyTier ladder (plus $0).
+ *  - Stores the counts in a Fenwick tree, so adding a game and asking "how many
+ *    games scored less than this?" are both O(log buckets).
+ *  - From that it works out a player's rank and percentile without scanning
+ *    GAME_SESSION.
+ *
+ * Winnings that aren't exactly a ladder prize fall into the bucket of the highest
+ * prize below them.
+ */
+public final class RankIndex {
+
+    private final int[] thresholds; // sorted prize values, thresholds[0] == 0
+    private final long[] tree;      // 1-based Fenwick tree over the buckets
+    private long total;
+
+    /**
+     * Where one score sits among all finished games.
+     * rank is 1 for the best score; percentile is the share of games (0-100)
+     * that scored strictly less.
+     */
+    public record Rank(long rank, long total, double percentile) {
+    }
+
+    // constructor, one bucket per MoneyTier prize
+    public RankIndex() {
+        this(ladderThresholds());
+    }
+
+    public RankIndex(int[] thresholds) {
+        if (thresholds.length == 0 || thresholds[0] != 0) {
+            throw new IllegalArgumentException("thresholds must start at 0");
+        }
+        this.thresholds = thresholds.clone();
+        Arrays.sort(this.thresholds);
+        this.tree = new long[this.thresholds.length + 1];
+    }
+
+    // $0 plus every distinct prize on the ladder
+    private static int[] ladderThresholds() {
+        MoneyTier[] tiers = MoneyTier.values();
+        int[] out = new int[tiers.length + 1];
+        for (int i = 0; i < tiers.length; i++) {
+            out[i + 1] = tiers[i].getPrize();
+        }
+        return Arrays.stream(out).distinct().sorted().toArray();
+    }
+
+    // which bucket (0-based) a winnings amount belongs to
+    private int bucketOf(int winnings) {
+        if (winnings <= 0) {
+            return 0;
+        }
+        int i = Arrays.binarySearch(thresholds, winnings);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    // records one finished game
+    public synchronized void add(int winnings) {
+        add(winnings, 1);
+    }
+
+    // records several finished games with the same winnings
+    public synchronized void add(int winnings, long count) {
+        for (int i = bucketOf(winnings) + 1; i < tree.length; i += i & -i) {
+            tree[i] += count;
+        }
+        total += count;
+    }
+
+    // number of games in buckets 0..bucket-1
+    private long countBelow(int bucket) {
+        long sum = 0;
+        for (int i = bucket; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // number of finished games counted so far
+    public synchronized long total() {
+        return total;
+    }
+
+    // rank and percentile a game with these winnings would have
+    public synchronized Rank rankOf(int winnings) {
+        int bucket = bucketOf(winnings);
+        long below = countBelow(bucket);
+        long atOrBelow = countBelow(bucket + 1);
+        long better = total - atOrBelow;
+        double pct = total == 0 ? 100.0 : 100.0 * below / total;
+        return new Rank(better + 1, total, pct);
+    }
+
+    // rank and percentile a game that isn't counted yet will have once it is (e.g. a game
+    // that has just finished while its session is still queued to be written)
+    public synchronized Rank rankOfNew(int winnings) {
+        int bucket = bucketOf(winnings);
+        long below = countBelow(bucket);
+        long better = total - countBelow(bucket + 1);
+        long all = total + 1;
+        return new Rank(better + 1, all, 100.0 * below / all);
+    }
+
+    // empties the index before a reload
+    public synchronized void clear() {
+        Arrays.fill(tree, 0);
+        total = 0;
+    }
+}
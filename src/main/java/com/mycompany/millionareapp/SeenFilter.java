@@ -0,0 +1,126 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp;
+
+import java.nio.ByteBuffer;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * What this class does:
+ *  - Remembers which questions (by QUESTION.ID) one player has already been asked,
+ *    as a Bloom filter: a fixed 1 KB bit set and 5 bit positions per question.
+ *  - mightHaveSeen() never says no for a question that was added; about 1 in 100
+ *    unseen questions get a false yes once the filter is full, which only means
+ *    that question is skipped for this player now and then.
+ *  - Holds CAPACITY questions (about 55 full games). Adding more starts a fresh
+ *    filter, so the oldest questions come back into rotation rather than the
+ *    false-positive rate climbing until nothing is left to ask.
+ *  - toBytes()/fromBytes() give the PLAYER.SEEN blob. An empty or unreadable blob
+ *    is just a player who has seen nothing.
+ *  - Thread safe; the methods lock the filter.
+ */
+public final class SeenFilter {
+
+    public static final int BITS = 8192;
+    public static final int HASHES = 5;
+    public static final int CAPACITY = 850;
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final int HEADER = 1 + 4; // version, count
+    public static final int BLOB_BYTES = HEADER + BITS / 8;
+
+    private final long[] bits = new long[BITS / 64];
+    private int count; // distinct questions added since the last reset
+    private boolean dirty;
+
+    // constructor for a player who has seen nothing yet
+    public SeenFilter() {
+    }
+
+    // this method reads a PLAYER.SEEN blob, null or a blob it doesn't understand gives an empty filter
+    public static SeenFilter fromBytes(byte[] blob) {
+        SeenFilter f = new SeenFilter();
+        if (blob == null || blob.length != BLOB_BYTES || blob[0] != FORMAT_VERSION) {
+            return f;
+        }
+        ByteBuffer in = ByteBuffer.wrap(blob);
+        in.get();
+        f.count = in.getInt();
+        for (int i = 0; i < f.bits.length; i++) {
+            f.bits[i] = in.getLong();
+        }
+        return f;
+    }
+
+    // this method returns the filter as a PLAYER.SEEN blob
+    public synchronized byte[] toBytes() {
+        ByteBuffer out = ByteBuffer.allocate(BLOB_BYTES);
+        out.put(FORMAT_VERSION).putInt(count);
+        for (long word : bits) {
+            out.putLong(word);
+        }
+        return out.array();
+    }
+
+    // true if the question may have been asked already, false if it definitely hasn't
+    public synchronized boolean mightHaveSeen(long questionId) {
+        if (questionId == 0) {
+            return false; // no id, nothing to remember it by (file snapshot ids are negative but stable)
+        }
+        long h = mix(questionId);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (h1 + i * h2) & (BITS - 1);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // this method records a question as asked
+    public synchronized void add(long questionId) {
+        if (questionId == 0 || mightHaveSeen(questionId)) {
+            return;
+        }
+        if (count >= CAPACITY) {
+            java.util.Arrays.fill(bits, 0L);
+            count = 0;
+        }
+        long h = mix(questionId);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (h1 + i * h2) & (BITS - 1);
+            bits[bit >>> 6] |= 1L << bit;
+        }
+        count++;
+        dirty = true;
+    }
+
+    // distinct questions remembered since the filter last started over
+    public synchronized int size() {
+        return count;
+    }
+
+    // true when questions were added since the last markSaved()
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+    // called once the blob has been handed to the writer
+    public synchronized void markSaved() {
+        dirty = false;
+    }
+
+    // SplitMix64 finaliser, spreads sequential ids over the whole bit set
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,477 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * What this class does:
+ *  - Keeps every game in progress in a memory-mapped file, one fixed-size record
+ *    per game, so a crash or System.exit doesn't lose them.
+ *  - It is a GameEngine.Listener: after every start, answer and lifeline the
+ *    game's record is rewritten in place (a few hundred bytes, no serialization
+ *    library, no matter how many games there are). Finished games free their
+ *    record for the next game.
+ *  - The OS owns the mapped pages, so a record is safe as soon as it is written
+ *    if the process dies; force() (also done by close()) pushes it to disk for
+ *    power cuts too.
+ *  - Each record has a CRC, so one torn by a crash mid-write is skipped on
+ *    restart rather than resumed wrong.
+ *  - leave(game) parks a game the player walked away from (save & exit, back to
+ *    the menu) so it counts as saved straight away, not only after a restart.
+ *  - resume(name, engine) (or restoreAll) turns saved records back
+ *    into GameStates, lifelines used included. Saved games remember the question
+ *    ids they were dealt and are dropped if the bank no longer has those questions
+ *    at those numbers.
+ *  - savedQuestionIds(name) gives a saved game's question ids, so a game dealt from a
+ *    bank of its own (sampled in the database) can rebuild that bank to resume.
+ *  - attachSession records the GAME_SESSION row a game is being played under, so
+ *    a resumed game finishes that row instead of leaving it open (sessionOf).
+ *  - The game's GameJournal id is saved too, so a resumed game's history carries on
+ *    under the id it started with.
+ *
+ * File layout (big-endian):
+ *   header (32 bytes)  magic, format version, ladder size, record size, record count
+ *   records            status, crc, seed, saved-at millis, question number, current
+ *                      and guaranteed ladder step, flags, player name (64 bytes),
+ *                      session id and start millis, 50/50 then reveal use (question
+ *                      id, used-at millis, question number), journal id, then per question its
+ *                      bank number and question id, then per question its answer order
+ */
+public final class SessionCheckpoints implements GameEngine.Listener, AutoCloseable {
+
+    static final int MAGIC = 0x4D435031; // "MCP1"
+    static final int FORMAT_VERSION = 3;
+    static final int HEADER_SIZE = 32;
+    static final int NAME_BYTES = 64;
+    private static final int INITIAL_RECORDS = 64;
+
+    private static final int LIVE = 1;
+    private static final int SESSION = 96;    // session id, -1 when not known
+    private static final int STARTED = 104;   // session start millis
+    private static final int LIFELINES = 112; // two lifeline uses of LIFELINE_BYTES
+    private static final int LIFELINE_BYTES = 20;
+    private static final int JOURNAL = LIFELINES + 2 * LIFELINE_BYTES; // GameJournal id, 0 = not logged
+    private static final int FIXED = JOURNAL + 8; // record bytes before the per-question part
+    private static final int FLAG_5050 = 1;
+    private static final int FLAG_REVEAL = 2;
+    private static final int FLAG_DEALT = 4;
+
+    private final Path file;
+    private final PrizeLadder ladder;
+    private final int length;
+    private final int recordSize;
+    private final FileChannel channel;
+    private MappedByteBuffer map;
+    private int records;
+    private final Map<GameState, Integer> slots = new HashMap<>(); // GameState uses identity equals
+    private final Map<Integer, String> saved = new HashMap<>();   // left or restored records not resumed yet
+    private final List<Integer> free = new ArrayList<>();
+    private final CRC32 crc = new CRC32();
+
+    private SessionCheckpoints(Path file, PrizeLadder ladder, FileChannel channel) {
+        this.file = file;
+        this.ladder = ladder;
+        this.length = ladder.size();
+        this.recordSize = (FIXED + 13 * length + 7) & ~7;
+        this.channel = channel;
+    }
+
+    // this method opens (or creates) the checkpoint file for games on this ladder. A file
+    // written for another ladder, or one that can't be read, is started again empty
+    public static SessionCheckpoints open(Path file, PrizeLadder ladder) throws IOException {
+        if (ladder.size() > Question.MAX_TIER) {
+            throw new IllegalArgumentException("ladder is too long to checkpoint");
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        SessionCheckpoints c = new SessionCheckpoints(file, ladder, ch);
+        try {
+            c.load();
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+        return c;
+    }
+
+    private void load() throws IOException {
+        long size = channel.size();
+        boolean usable = false;
+        if (size >= HEADER_SIZE) {
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            usable = map.getInt(0) == MAGIC && map.getInt(4) == FORMAT_VERSION
+                    && map.getInt(8) == length && map.getInt(12) == recordSize
+                    && HEADER_SIZE + (long) map.getInt(16) * recordSize <= size;
+        }
+        if (!usable) {
+            remap(INITIAL_RECORDS);
+            map.putInt(0, MAGIC).putInt(4, FORMAT_VERSION).putInt(8, length).putInt(12, recordSize);
+            map.putInt(16, INITIAL_RECORDS);
+            for (int slot = INITIAL_RECORDS - 1; slot >= 0; slot--) {
+                clear(slot);
+            }
+            return;
+        }
+        records = map.getInt(16);
+        for (int slot = records - 1; slot >= 0; slot--) {
+            if (valid(slot)) {
+                saved.put(slot, name(slot));
+            } else {
+                clear(slot);
+            }
+        }
+    }
+
+    // ---------- GameEngine.Listener ----------
+
+    @Override
+    public synchronized void started(GameEngine engine, GameState status) {
+        write(engine, status);
+    }
+
+    @Override
+    public synchronized void answered(GameEngine engine, GameState status, int questionNumber, int chosen, boolean correct) {
+        if (status.getGameOver()) {
+            remove(status);
+        } else {
+            write(engine, status);
+        }
+    }
+
+    @Override
+    public synchronized void lifelineUsed(GameEngine engine, GameState status, LifelineUse use) {
+        write(engine, status);
+    }
+
+    /**
+     * The GAME_SESSION row a checkpointed game belongs to.
+     */
+    public record SavedSession(long sessionId, Instant startedAt) {
+    }
+
+    // this method notes which GAME_SESSION row a checkpointed game is played under
+    // (does nothing once the game has finished or been left)
+    public synchronized void attachSession(GameState status, long sessionId, Instant startedAt) {
+        Integer slot = slots.get(status);
+        if (slot == null) {
+            return;
+        }
+        int at = offset(slot);
+        map.putInt(at, 0);
+        map.putLong(at + SESSION, sessionId);
+        map.putLong(at + STARTED, startedAt.toEpochMilli());
+        map.putInt(at + 4, checksum(at));
+        map.putInt(at, LIVE);
+    }
+
+    // the session a checkpointed game was being played under, null if none was attached
+    public synchronized SavedSession sessionOf(GameState status) {
+        Integer slot = slots.get(status);
+        if (slot == null || map.getLong(offset(slot) + SESSION) < 0) {
+            return null;
+        }
+        int at = offset(slot);
+        return new SavedSession(map.getLong(at + SESSION), Instant.ofEpochMilli(map.getLong(at + STARTED)));
+    }
+
+    // ---------- restoring ----------
+
+    // names of the players with a saved game that hasn't been resumed yet
+    public synchronized List<String> savedPlayers() {
+        return new ArrayList<>(saved.values());
+    }
+
+    // this method brings back the player's most recently saved game for this engine's bank,
+    // null if there is none (a saved game whose questions are gone is dropped)
+    public synchronized GameState resume(String name, GameEngine engine) {
+        while (true) {
+            int best = latestSaved(name);
+            if (best < 0) {
+                return null;
+            }
+            saved.remove(best);
+            GameState status = restore(best, engine);
+            if (status != null) {
+                return status;
+            }
+        }
+    }
+
+    // the question ids the player's most recently saved game was dealt, in bank number order,
+    // null if there is none. A game played from a bank of its own (a sampled game, numbered
+    // 1..n) rebuilds that bank from these before it is resumed
+    public synchronized long[] savedQuestionIds(String name) {
+        int best = latestSaved(name);
+        if (best < 0) {
+            return null;
+        }
+        int at = offset(best);
+        long[][] dealt = new long[length][];
+        int count = 0;
+        for (int n = 1; n <= length; n++) {
+            int q = at + FIXED + (n - 1) * 12;
+            if (map.getInt(q) >= 1) {
+                dealt[count++] = new long[]{map.getInt(q), map.getLong(q + 4)};
+            }
+        }
+        java.util.Arrays.sort(dealt, 0, count, java.util.Comparator.comparingLong(d -> d[0]));
+        long[] ids = new long[count];
+        for (int k = 0; k < count; k++) {
+            ids[k] = dealt[k][1];
+        }
+        return count == 0 ? null : ids;
+    }
+
+    // this method brings back every saved game that still fits this engine's bank
+    public synchronized List<GameState> restoreAll(GameEngine engine) {
+        List<GameState> out = new ArrayList<>();
+        for (Integer slot : new ArrayList<>(saved.keySet())) {
+            saved.remove(slot);
+            GameState status = restore(slot, engine);
+            if (status != null) {
+                out.add(status);
+            }
+        }
+        return out;
+    }
+
+    // this method parks a game the player is leaving unfinished: its record stays in the file
+    // and resume finds it again, in this process or after a restart. Don't play status after this
+    public synchronized void leave(GameState status) {
+        Integer slot = slots.remove(status);
+        if (slot != null) {
+            saved.put(slot, name(slot));
+        }
+    }
+
+    // this method drops a game's checkpoint (walked away, abandoned)
+    public synchronized void remove(GameState status) {
+        Integer slot = slots.remove(status);
+        if (slot != null) {
+            clear(slot);
+        }
+    }
+
+    // games with a record in the file, saved or being played
+    public synchronized int size() {
+        return slots.size() + saved.size();
+    }
+
+    // this method writes the mapped records through to the disk
+    public synchronized void force() {
+        map.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            map.force();
+            channel.close();
+        }
+    }
+
+    public Path getPath() {
+        return file;
+    }
+
+    // ---------- records ----------
+
+    // helper method that rewrites the game's record, status word last so a torn write is never live
+    private void write(GameEngine engine, GameState status) {
+        Integer slot = slots.get(status);
+        boolean fresh = slot == null;
+        if (fresh) {
+            slot = allocate();
+            slots.put(status, slot);
+        }
+        int at = offset(slot);
+        QuestionBank bank = engine.getQuestionBank();
+        int[] order = status.getQuestionOrder();
+        int flags = (status.hasUsed5050() ? FLAG_5050 : 0) | (status.hasUsedLifeline() ? FLAG_REVEAL : 0)
+                | (order != null ? FLAG_DEALT : 0);
+        map.putInt(at, 0);
+        map.putLong(at + 8, status.getSeed());
+        map.putLong(at + 16, System.currentTimeMillis());
+        map.putInt(at + 24, status.getQuestionNumber());
+        map.put(at + 28, (byte) status.getCurrentTier());
+        map.put(at + 29, (byte) status.getGuaranteedTier());
+        map.put(at + 30, (byte) flags);
+        byte[] name = nameBytes(status.getName());
+        map.put(at + 31, (byte) name.length);
+        map.put(at + 32, name);
+        if (fresh) {
+            map.putLong(at + SESSION, -1L);
+            map.putLong(at + STARTED, 0L);
+        }
+        map.putLong(at + JOURNAL, status.getJournalId());
+        for (int k = 0; k < 2; k++) {
+            map.putInt(at + LIFELINES + k * LIFELINE_BYTES + 16, 0);
+        }
+        for (LifelineUse use : status.getLifelineUses()) {
+            int u = at + LIFELINES + (LifelineUse.FIFTY_FIFTY.equals(use.name()) ? 0 : LIFELINE_BYTES);
+            map.putLong(u, use.questionId());
+            map.putLong(u + 8, use.usedAt().toEpochMilli());
+            map.putInt(u + 16, use.questionNumber());
+        }
+        int games = Math.min(length, bank.size());
+        for (int n = 1; n <= length; n++) {
+            int number = n <= games ? status.getBankNumber(n) : 0;
+            boolean known = number >= 1 && number <= bank.size();
+            int q = at + FIXED + (n - 1) * 12;
+            map.putInt(q, known ? number : 0);
+            map.putLong(q + 4, known ? bank.idOf(number) : 0L);
+            map.put(at + FIXED + 12 * length + n - 1, status.optionOrderOf(n));
+        }
+        map.putInt(at + 4, checksum(at));
+        map.putInt(at, LIVE);
+    }
+
+    // helper method that turns a record back into a GameState, or clears it if it no longer fits
+    private GameState restore(int slot, GameEngine engine) {
+        int at = offset(slot);
+        QuestionBank bank = engine.getQuestionBank();
+        if (engine.getLadder().size() != length) {
+            clear(slot);
+            return null;
+        }
+        int flags = map.get(at + 30);
+        int[] order = new int[Math.min(length, bank.size())];
+        byte[] options = new byte[length];
+        for (int n = 1; n <= length; n++) {
+            int q = at + FIXED + (n - 1) * 12;
+            int number = map.getInt(q);
+            if (n <= order.length) {
+                if (number < 1 || number > bank.size() || bank.idOf(number) != map.getLong(q + 4)) {
+                    clear(slot);
+                    return null; // the bank changed under this game
+                }
+                order[n - 1] = number;
+            }
+            options[n - 1] = map.get(at + FIXED + 12 * length + n - 1);
+        }
+        GameState status;
+        try {
+            status = new GameState(name(slot), engine.getLadder(),
+                    (flags & FLAG_DEALT) != 0 && order.length > 0 ? order : null, options, map.getLong(at + 8),
+                    map.getInt(at + 24), map.get(at + 28), map.get(at + 29),
+                    (flags & FLAG_5050) != 0, (flags & FLAG_REVEAL) != 0);
+        } catch (IllegalArgumentException e) {
+            clear(slot);
+            return null;
+        }
+        List<LifelineUse> uses = new ArrayList<>(2);
+        for (int k = 0; k < 2; k++) {
+            int u = at + LIFELINES + k * LIFELINE_BYTES;
+            if (map.getInt(u + 16) > 0) {
+                uses.add(new LifelineUse(k == 0 ? LifelineUse.FIFTY_FIFTY : LifelineUse.REVEAL,
+                        map.getLong(u), map.getInt(u + 16), Instant.ofEpochMilli(map.getLong(u + 8))));
+            }
+        }
+        uses.sort(java.util.Comparator.comparing(LifelineUse::usedAt));
+        uses.forEach(status::recordLifeline);
+        status.setJournalId(map.getLong(at + JOURNAL));
+        slots.put(status, slot);
+        return status;
+    }
+
+    private boolean valid(int slot) {
+        int at = offset(slot);
+        return map.getInt(at) == LIVE && map.getInt(at + 4) == checksum(at)
+                && map.get(at + 31) >= 0 && map.get(at + 31) <= NAME_BYTES;
+    }
+
+    private void clear(int slot) {
+        map.putInt(offset(slot), 0);
+        free.add(slot);
+    }
+
+    private int allocate() {
+        if (free.isEmpty()) {
+            int grown = records * 2;
+            try {
+                remap(grown);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not grow " + file, e);
+            }
+            map.putInt(16, grown);
+            for (int slot = grown - 1; slot >= records / 2; slot--) {
+                free.add(slot);
+            }
+        }
+        return free.remove(free.size() - 1);
+    }
+
+    // maps the file for this many records, growing it if needed
+    private void remap(int count) throws IOException {
+        if (map != null) {
+            map.force();
+        }
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) count * recordSize);
+        records = count;
+    }
+
+    private int offset(int slot) {
+        return HEADER_SIZE + slot * recordSize;
+    }
+
+    // the slot of the player's most recently saved game, -1 if there is none. Records only
+    // keep the first NAME_BYTES of a name, so the name is cut the same way before comparing
+    private int latestSaved(String name) {
+        String key = new String(nameBytes(name), StandardCharsets.UTF_8);
+        int best = -1;
+        for (Map.Entry<Integer, String> e : saved.entrySet()) {
+            if (e.getValue().equals(key) && (best < 0 || savedAt(e.getKey()) > savedAt(best))) {
+                best = e.getKey();
+            }
+        }
+        return best;
+    }
+
+    private long savedAt(int slot) {
+        return map.getLong(offset(slot) + 16);
+    }
+
+    private String name(int slot) {
+        int at = offset(slot);
+        byte[] b = new byte[map.get(at + 31)];
+        map.get(at + 32, b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private int checksum(int at) {
+        crc.reset();
+        crc.update(map.slice(at + 8, recordSize - 8));
+        return (int) crc.getValue();
+    }
+
+    // the name as UTF-8, cut to NAME_BYTES on a character boundary
+    private static byte[] nameBytes(String name) {
+        String s = name == null ? "" : name;
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        while (b.length > NAME_BYTES) {
+            s = s.substring(0, s.length() - 1);
+            b = s.getBytes(StandardCharsets.UTF_8);
+        }
+        return b;
+    }
+}
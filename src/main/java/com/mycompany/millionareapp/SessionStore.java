@@ -0,0 +1,300 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * What this class does:
+ *  - Holds live games as slots in primitive arrays instead of one GameState object
+ *    each, for servers keeping a very large number of idle games around.
+ *  - A slot's progress (question number, current and guaranteed ladder step,
+ *    lifeline, game over and won flags) is packed into one long. Next to it the
+ *    slot has its player id and name, deal seed, journal id, dealt bank numbers and
+ *    answer orders, so about 120 bytes a game for the classic ladder and no objects
+ *    of its own (the name is the String the game was added with).
+ *  - Slots live in fixed chunks of 64k that are never copied, so growing the
+ *    store never moves a game another thread is playing. Freed slots go on a
+ *    free-list and are handed out again before a new chunk is added.
+ *  - view(slot) returns a GameState backed by the slot, so GameEngine plays a
+ *    stored game exactly like a heap one. Views are cheap throwaway objects; one
+ *    game should only be played through one view at a time (the engine locks
+ *    the view, not the slot).
+ *  - Every slot has a generation that remove() bumps, and a view only works while
+ *    its slot is on the generation it was made for, so a view kept past remove()
+ *    throws instead of playing whatever game reuses the slot.
+ *  - All games in a store use the same ladder.
+ */
+public final class SessionStore {
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // layout of the packed long
+    private static final int QUESTION_SHIFT = 0;   // 8 bits, 1-based question number
+    private static final int CURRENT_SHIFT = 8;    // 8 bits, ladder step of the current prize
+    private static final int GUARANTEED_SHIFT = 16; // 8 bits, ladder step of the last safe haven
+    private static final long USED_5050 = 1L << 24;
+    private static final long USED_REVEAL = 1L << 25;
+    private static final long GAME_OVER = 1L << 26;
+    private static final long WON = 1L << 27;
+    private static final long DEALT = 1L << 28;    // has its own question order
+    private static final long SHUFFLED = 1L << 29; // has its own answer orders
+    private static final long LIVE = 1L << 30;     // slot is in use
+
+    /**
+     * One chunk of slots, struct-of-arrays.
+     */
+    private static final class Chunk {
+        final long[] state;
+        final long[] player;
+        final long[] seed;
+        final long[] journal;   // GameJournal id, 0 = not logged yet
+        final int[] generation; // bumped every time the slot is freed
+        final String[] name;
+        final int[] order;    // length bank numbers per slot
+        final byte[] options; // length answer orders per slot
+
+        Chunk(int length) {
+            state = new long[CHUNK_SIZE];
+            player = new long[CHUNK_SIZE];
+            seed = new long[CHUNK_SIZE];
+            journal = new long[CHUNK_SIZE];
+            generation = new int[CHUNK_SIZE];
+            name = new String[CHUNK_SIZE];
+            order = new int[CHUNK_SIZE * length];
+            options = new byte[CHUNK_SIZE * length];
+        }
+    }
+
+    private final PrizeLadder ladder;
+    private final int length; // questions per game = ladder size
+    private volatile Chunk[] chunks = new Chunk[0];
+    private int next;          // first slot never handed out, guarded by this
+    private int[] free = new int[16];
+    private int freeCount;     // guarded by this
+    private int live;          // guarded by this
+    // full lifeline details, only for games that used one (the flags are in the packed long)
+    private final Map<Integer, List<LifelineUse>> lifelines = new ConcurrentHashMap<>();
+
+    // constructor, every game in the store is played on this ladder
+    public SessionStore(PrizeLadder ladder) {
+        if (ladder == null) throw new NullPointerException("ladder");
+        if (ladder.size() > 0xFF) {
+            throw new IllegalArgumentException("a packed game can't be longer than 255 questions");
+        }
+        this.ladder = ladder;
+        this.length = ladder.size();
+    }
+
+    // this method copies a freshly started game into a slot and returns the slot
+    public int add(long playerId, GameState game) {
+        if (game.getLadder() != ladder) {
+            throw new IllegalArgumentException("game is on a different ladder than the store");
+        }
+        int slot = allocate();
+        Chunk c = chunk(slot);
+        int i = slot & CHUNK_MASK;
+        long word = LIVE
+                | (long) game.getQuestionNumber() << QUESTION_SHIFT
+                | (long) game.getCurrentTier() << CURRENT_SHIFT
+                | (long) game.getGuaranteedTier() << GUARANTEED_SHIFT;
+        if (game.hasUsed5050()) word |= USED_5050;
+        if (game.hasUsedLifeline()) word |= USED_REVEAL;
+        if (game.getGameOver()) word |= GAME_OVER;
+        if (game.getHasWon()) word |= WON;
+        int[] order = game.getQuestionOrder();
+        if (order != null) {
+            word |= DEALT;
+            System.arraycopy(order, 0, c.order, i * length, Math.min(order.length, length));
+        }
+        boolean shuffled = false;
+        for (int n = 1; n <= length; n++) {
+            byte o = game.optionOrderOf(n);
+            c.options[i * length + n - 1] = o;
+            shuffled |= o != OptionShuffle.IDENTITY;
+        }
+        if (shuffled) word |= SHUFFLED;
+        c.player[i] = playerId;
+        c.name[i] = game.getName();
+        c.seed[i] = game.getSeed();
+        c.journal[i] = game.getJournalId();
+        List<LifelineUse> uses = game.getLifelineUses();
+        if (!uses.isEmpty()) {
+            lifelines.put(slot, new java.util.ArrayList<>(uses));
+        }
+        c.state[i] = word;
+        return slot;
+    }
+
+    // this method returns a GameState that reads and writes the slot
+    public GameState view(int slot) {
+        check(slot);
+        return new View(slot);
+    }
+
+    // the player a slot belongs to
+    public long playerOf(int slot) {
+        check(slot);
+        return chunk(slot).player[slot & CHUNK_MASK];
+    }
+
+    // this method frees a slot (e.g. once its game is over and written), it will be reused
+    public synchronized void remove(int slot) {
+        check(slot);
+        Chunk c = chunk(slot);
+        int i = slot & CHUNK_MASK;
+        c.state[i] = 0L;
+        c.generation[i]++; // views of the game that was here stop working
+        c.name[i] = null;
+        lifelines.remove(slot);
+        if (freeCount == free.length) {
+            free = java.util.Arrays.copyOf(free, free.length * 2);
+        }
+        free[freeCount++] = slot;
+        live--;
+    }
+
+    // games in the store
+    public synchronized int size() {
+        return live;
+    }
+    // slots allocated so far, used or free
+    public int capacity() {
+        return chunks.length * CHUNK_SIZE;
+    }
+
+    private synchronized int allocate() {
+        live++;
+        if (freeCount > 0) {
+            return free[--freeCount];
+        }
+        int slot = next++;
+        if ((slot >>> CHUNK_BITS) >= chunks.length) {
+            Chunk[] grown = java.util.Arrays.copyOf(chunks, chunks.length + 1);
+            grown[chunks.length] = new Chunk(length);
+            chunks = grown;
+        }
+        return slot;
+    }
+
+    private Chunk chunk(int slot) {
+        return chunks[slot >>> CHUNK_BITS];
+    }
+
+    private void check(int slot) {
+        if (slot < 0 || slot >= capacity() || (chunk(slot).state[slot & CHUNK_MASK] & LIVE) == 0) {
+            throw new IllegalArgumentException("no game in slot " + slot);
+        }
+    }
+
+    /**
+     * A GameState whose fields are the slot's packed long and arrays.
+     */
+    private final class View extends GameState {
+        private final Chunk c;
+        private final int i;
+        private final int slot;
+        private final int generation;
+
+        View(int slot) {
+            super(chunk(slot).name[slot & CHUNK_MASK], ladder);
+            this.slot = slot;
+            this.c = chunk(slot);
+            this.i = slot & CHUNK_MASK;
+            this.generation = c.generation[i];
+        }
+
+        // every read and write goes through here, so a view of a removed game fails
+        private void live() {
+            if (c.generation[i] != generation) {
+                throw new IllegalStateException("the game in slot " + slot + " has been removed");
+            }
+        }
+        private long word() {
+            live();
+            return c.state[i];
+        }
+        private int field(int shift) {
+            return (int) (word() >>> shift) & 0xFF;
+        }
+        private void setField(int shift, int value) {
+            c.state[i] = (word() & ~(0xFFL << shift)) | (long) value << shift;
+        }
+        private boolean flag(long bit) {
+            return (word() & bit) != 0;
+        }
+        private void setFlag(long bit, boolean on) {
+            c.state[i] = on ? word() | bit : word() & ~bit;
+        }
+
+        @Override public String getName() { live(); return super.getName(); }
+        @Override public int getQuestionNumber() { return field(QUESTION_SHIFT); }
+        @Override public int getCurrentTier() { return field(CURRENT_SHIFT); }
+        @Override public int getGuaranteedTier() { return field(GUARANTEED_SHIFT); }
+        @Override public int getCurrentPrize() { return ladder.prize(getCurrentTier()); }
+        @Override public int getGuaranteedPrize() { return ladder.prize(getGuaranteedTier()); }
+        @Override public boolean hasUsed5050() { return flag(USED_5050); }
+        @Override public boolean hasUsedLifeline() { return flag(USED_REVEAL); }
+        @Override public boolean getGameOver() { return flag(GAME_OVER); }
+        @Override public boolean getHasWon() { return flag(WON); }
+        @Override public long getSeed() { live(); return c.seed[i]; }
+        @Override long getJournalId() { live(); return c.journal[i]; }
+        @Override void setJournalId(long id) { live(); c.journal[i] = id; }
+
+        @Override
+        public int getBankNumber(int questionNumber) {
+            if (!flag(DEALT)) {
+                return questionNumber;
+            }
+            return questionNumber >= 1 && questionNumber <= length ? c.order[i * length + questionNumber - 1] : -1;
+        }
+        @Override
+        public int[] getQuestionOrder() {
+            return flag(DEALT) ? java.util.Arrays.copyOfRange(c.order, i * length, (i + 1) * length) : null;
+        }
+        @Override
+        byte optionOrderOf(int questionNumber) {
+            return flag(SHUFFLED) && questionNumber >= 1 && questionNumber <= length
+                    ? c.options[i * length + questionNumber - 1] : OptionShuffle.IDENTITY;
+        }
+
+        @Override public void setHasUsed5050(boolean used) { setFlag(USED_5050, used); }
+        @Override public void setHasUsedLifeline(boolean used) { setFlag(USED_REVEAL, used); }
+        @Override public void gameOver() { setFlag(GAME_OVER, true); }
+        @Override
+        public void nextQuestion() {
+            setField(QUESTION_SHIFT, Math.min(getQuestionNumber() + 1, 0xFF));
+        }
+        @Override
+        public void updatePrize() {
+            int q = getQuestionNumber();
+            setField(CURRENT_SHIFT, Math.min(q, length));
+            setField(GUARANTEED_SHIFT, ladder.safeTier(q));
+        }
+        @Override
+        public void hasWon() {
+            setField(CURRENT_SHIFT, length);
+            c.state[i] = word() | WON | GAME_OVER;
+        }
+        @Override
+        public void recordLifeline(LifelineUse use) {
+            live();
+            lifelines.computeIfAbsent(slot, s -> new java.util.concurrent.CopyOnWriteArrayList<>()).add(use);
+        }
+        @Override
+        public List<LifelineUse> getLifelineUses() {
+            live();
+            List<LifelineUse> uses = lifelines.get(slot);
+            return uses == null ? List.of() : List.copyOf(uses);
+        }
+    }
+}
@@ -0,0 +1,404 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * What this class does:
+ *  - Takes GAME_SESSION writes off the Swing EDT. start() and finish() just
+ *    record what happened and put the session on a queue.
+ *  - A single background thread drains the queue and hands the sessions to the
+ *    repository in batches, one transaction per batch.
+ *  - Writes coalesce: a session that was started and finished before the writer
+ *    got to it becomes a single INSERT with the final values.
+ *  - The queue is bounded, so if the database falls behind, callers block until
+ *    there is room again (backpressure) instead of using unbounded memory.
+ *  - Lifelines used during the game travel with the finished session and are
+ *    written to LIFELINE_USE as one JDBC batch in the same transaction, and so does
+ *    the player's updated seen filter (PLAYER.SEEN).
+ *  - A batch that fails is rolled back and tried again (WRITE_ATTEMPTS times, with
+ *    a growing pause), so a short database hiccup doesn't lose finished games. If it
+ *    still fails, each session is written on its own and only the ones that still
+ *    fail are dropped.
+ *  - flush() waits for everything queued so far, close() (and the optional
+ *    shutdown hook) drains the queue before the JVM exits.
+ *  - Keeps counters for queue depth, batch sizes and write latency.
+ */
+public final class SessionWriteBehind implements AutoCloseable {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int DEFAULT_MAX_BATCH = 256;
+    static final int WRITE_ATTEMPTS = 3;
+    private static final long RETRY_PAUSE_MILLIS = 100;
+
+    private final GameRepository repo;
+    private final BlockingQueue<Session> queue;
+    private final int maxBatch;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    // counters
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong sessionsWritten = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+    private final AtomicLong maxWriteNanos = new AtomicLong();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+
+    /**
+     * One game session as seen by the writer. The id is only known once the
+     * INSERT has been committed, so callers that need it wait on {@link #id()}.
+     */
+    public static final class Session {
+        private final long playerId;
+        private final Instant startedAt;
+        private final CompletableFuture<Long> id = new CompletableFuture<>();
+        private long enqueuedNanos;
+        private int winnings;
+        private long elapsedSeconds;
+        private Instant finishedAt;
+        private List<LifelineUse> lifelines = List.of();
+        private byte[] seen; // PLAYER.SEEN to write with the finish, null = unchanged
+        private long sessionId = -1L;
+        private boolean finishWritten;
+
+        Session(long playerId, Instant startedAt) {
+            this.playerId = playerId;
+            this.startedAt = startedAt;
+        }
+        // completes with the GAME_SESSION id once the row exists
+        public CompletableFuture<Long> id() {
+            return id;
+        }
+        public long getPlayerId() {
+            return playerId;
+        }
+        public Instant getStartedAt() {
+            return startedAt;
+        }
+        public synchronized boolean isFinished() {
+            return finishedAt != null;
+        }
+
+        synchronized void finish(int winnings, long elapsedSeconds, Instant finishedAt,
+                List<LifelineUse> lifelines) {
+            this.winnings = winnings;
+            this.elapsedSeconds = elapsedSeconds;
+            this.finishedAt = finishedAt;
+            this.lifelines = List.copyOf(lifelines);
+        }
+        synchronized void seen(byte[] blob) {
+            this.seen = blob;
+        }
+        // what the repository should write for this session right now
+        synchronized Write pending() {
+            if (sessionId < 0) {
+                return new Write(this, -1L, playerId, startedAt, winnings, elapsedSeconds, finishedAt,
+                        finishedAt == null ? List.of() : lifelines, finishedAt == null ? null : seen);
+            }
+            if (finishedAt != null && !finishWritten) {
+                return new Write(this, sessionId, playerId, startedAt, winnings, elapsedSeconds, finishedAt,
+                        lifelines, seen);
+            }
+            return null; // nothing new since the last batch
+        }
+        // called by the writer after the batch containing w was committed
+        synchronized void written(Write w, long newId) {
+            if (sessionId < 0) {
+                sessionId = newId;
+            }
+            if (w.finishedAt() != null && w.finishedAt().equals(finishedAt)) {
+                finishWritten = true;
+            }
+        }
+    }
+
+    /**
+     * A frozen copy of what one session needs written. sessionId is -1 when the
+     * row still has to be inserted.
+     */
+    record Write(Session session, long sessionId, long playerId, Instant startedAt,
+            int winnings, long elapsedSeconds, Instant finishedAt, List<LifelineUse> lifelines,
+            byte[] seen) {
+    }
+
+    /**
+     * Writer counters at one point in time. Times are in nanoseconds.
+     */
+    public record Stats(int queueDepth, long enqueued, long coalesced, long batches,
+            long sessionsWritten, long failures, long retries, long dropped, long avgWriteNanos,
+            long maxWriteNanos, long maxLagNanos) {
+
+        @Override
+        public String toString() {
+            return "queue=" + queueDepth + " enqueued=" + enqueued + " coalesced=" + coalesced
+                    + " batches=" + batches + " written=" + sessionsWritten + " failures=" + failures
+                    + " retries=" + retries + " dropped=" + dropped
+                    + " avgWrite=" + TimeUnit.NANOSECONDS.toMillis(avgWriteNanos) + "ms"
+                    + " maxWrite=" + TimeUnit.NANOSECONDS.toMillis(maxWriteNanos) + "ms"
+                    + " maxLag=" + TimeUnit.NANOSECONDS.toMillis(maxLagNanos) + "ms";
+        }
+    }
+
+    // constructor with default queue and batch sizes
+    public SessionWriteBehind(GameRepository repo) {
+        this(repo, DEFAULT_CAPACITY, DEFAULT_MAX_BATCH);
+    }
+
+    public SessionWriteBehind(GameRepository repo, int capacity, int maxBatch) {
+        if (capacity < 1 || maxBatch < 1) {
+            throw new IllegalArgumentException("capacity and batch size must be at least 1");
+        }
+        this.repo = repo;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.writer = new Thread(this::drainLoop, "session-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // drains the queue when the JVM exits (System.exit included)
+    public void installShutdownHook() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "session-writer-shutdown"));
+    }
+
+    // this method queues a new session; the id is filled in once it has been written
+    public Session start(long playerId) {
+        Session s = new Session(playerId, Instant.now());
+        enqueue(s);
+        return s;
+    }
+
+    // this method picks up a session whose row was written earlier (a resumed game),
+    // nothing is queued until it finishes
+    public Session resume(long playerId, long sessionId, Instant startedAt) {
+        Session s = new Session(playerId, startedAt);
+        synchronized (s) {
+            s.sessionId = sessionId;
+        }
+        s.id.complete(sessionId);
+        return s;
+    }
+
+    // this method queues the final result of a session
+    public void finish(Session s, int winnings, long elapsedSeconds, Instant finishedAt) {
+        finish(s, winnings, elapsedSeconds, finishedAt, List.of());
+    }
+
+    // same as above, also queueing the lifelines used during the game
+    public void finish(Session s, int winnings, long elapsedSeconds, Instant finishedAt,
+            List<LifelineUse> lifelines) {
+        s.finish(winnings, elapsedSeconds, finishedAt, lifelines);
+        enqueue(s);
+    }
+
+    // same as above, also saving the player's seen filter if the game added to it
+    public void finish(Session s, int winnings, long elapsedSeconds, Instant finishedAt,
+            List<LifelineUse> lifelines, SeenFilter seen) {
+        if (seen != null && seen.isDirty()) {
+            s.seen(seen.toBytes());
+            seen.markSaved();
+        }
+        finish(s, winnings, elapsedSeconds, finishedAt, lifelines);
+    }
+
+    // puts a session on the queue, blocking while the queue is full
+    private void enqueue(Session s) {
+        if (closed) {
+            throw new IllegalStateException("session writer is closed");
+        }
+        synchronized (s) {
+            s.enqueuedNanos = System.nanoTime();
+        }
+        try {
+            queue.put(s);
+            enqueued.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing a session write", e);
+        }
+    }
+
+    // this method blocks until everything queued before the call has been written
+    public void flush() {
+        long target = enqueued.get();
+        synchronized (processed) {
+            while (processed.get() < target && writer.isAlive()) {
+                try {
+                    processed.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // this method stops taking new writes and drains what is left
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // snapshot of the writer counters
+    public Stats stats() {
+        long n = batches.get();
+        return new Stats(queue.size(), enqueued.get(), coalesced.get(), n, sessionsWritten.get(),
+                failures.get(), retries.get(), dropped.get(), n == 0 ? 0 : writeNanos.get() / n, maxWriteNanos.get(), maxLagNanos.get());
+    }
+
+    // the background thread: take one, grab whatever else is waiting, write it as one batch
+    private void drainLoop() {
+        List<Session> drained = new ArrayList<>(maxBatch);
+        while (true) {
+            Session first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                if (closed && queue.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            drained.clear();
+            drained.add(first);
+            queue.drainTo(drained, maxBatch - 1);
+            writeBatch(drained);
+            synchronized (processed) {
+                processed.addAndGet(drained.size());
+                processed.notifyAll();
+            }
+        }
+    }
+
+    // sleeps between attempts, false if the writer was interrupted
+    private static boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // coalesces the drained sessions and writes them in one transaction
+    private void writeBatch(List<Session> drained) {
+        LinkedHashSet<Session> unique = new LinkedHashSet<>(drained);
+        coalesced.addAndGet(drained.size() - unique.size());
+
+        List<Write> writes = new ArrayList<>(unique.size());
+        long oldestEnqueue = Long.MAX_VALUE;
+        for (Session s : unique) {
+            Write w = s.pending();
+            if (w != null) {
+                writes.add(w);
+            }
+            synchronized (s) {
+                oldestEnqueue = Math.min(oldestEnqueue, s.enqueuedNanos);
+            }
+        }
+        if (writes.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        RuntimeException[] failure = new RuntimeException[1];
+        long[] ids = attempt(writes, failure);
+        if (ids != null) {
+            written(writes, ids, start, oldestEnqueue);
+            return;
+        }
+        if (writes.size() == 1) {
+            drop(writes, failure[0]);
+            return;
+        }
+        // one bad session shouldn't take the rest of the batch with it, so each one gets
+        // its own transaction and only the ones that still fail are dropped
+        for (Write w : writes) {
+            List<Write> one = List.of(w);
+            long[] id = attempt(one, failure);
+            if (id == null) {
+                drop(one, failure[0]);
+            } else {
+                written(one, id, start, oldestEnqueue);
+            }
+        }
+    }
+
+    // writes with retries, null once every attempt failed (the last failure goes in failure[0])
+    private long[] attempt(List<Write> writes, RuntimeException[] failure) {
+        for (int attempt = 1; attempt <= WRITE_ATTEMPTS; attempt++) {
+            try {
+                return repo.writeSessions(writes); // rolled back if it throws, so it can run again
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+                failure[0] = e;
+                if (attempt == WRITE_ATTEMPTS || !pause(RETRY_PAUSE_MILLIS * attempt)) {
+                    break;
+                }
+                retries.incrementAndGet();
+            }
+        }
+        return null;
+    }
+
+    // drops sessions that could not be written
+    private void drop(List<Write> writes, RuntimeException failure) {
+        dropped.addAndGet(writes.size());
+        System.err.println("Session write-behind gave up on " + writes.size()
+                + " session(s): " + failure.getMessage());
+        for (Write w : writes) {
+            if (w.sessionId() < 0) {
+                w.session().id.completeExceptionally(failure);
+            }
+        }
+    }
+
+    // records a successful write and hands the ids back to the sessions
+    private void written(List<Write> writes, long[] ids, long start, long oldestEnqueue) {
+        long end = System.nanoTime();
+        batches.incrementAndGet();
+        sessionsWritten.addAndGet(writes.size());
+        writeNanos.addAndGet(end - start);
+        maxWriteNanos.accumulateAndGet(end - start, Math::max);
+        maxLagNanos.accumulateAndGet(end - oldestEnqueue, Math::max);
+
+        for (int i = 0; i < writes.size(); i++) {
+            Write w = writes.get(i);
+            w.session().written(w, ids[i]);
+            w.session().id.complete(ids[i]);
+        }
+    }
+}
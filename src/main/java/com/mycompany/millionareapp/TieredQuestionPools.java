@@ -0,0 +1,197 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.millionareapp;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ *
+ * @author rupertguppy
+ *
+ * What this class does:
+ *  - Groups the questions of a shared QuestionBank by difficulty tier, one pool per
+ *    ladder step, so game N can ask question 5 from the tier 5 pool instead of
+ *    always asking bank question 5.
+ *  - The pools are one int array of bank numbers (sorted by tier) plus where each
+ *    tier starts. Building it reads every question's tier once; after that the bank is
+ *    never copied or touched except to fetch the questions a game actually asks.
+ *  - Questions without a tier get one from their position in the bank (the file is
+ *    in difficulty order), so an untagged 15 question file still gives Q1 the
+ *    tier 1 question.
+ *  - Each game draws through its own Draw: a partial Fisher-Yates shuffle that
+ *    never writes to the shared array. The few positions a game swaps are kept in
+ *    a small map, so a draw is O(1) and a game costs memory for its draws only.
+ *  - A game can skip questions its player has probably seen (SeenFilter): a few
+ *    extra draws per tier, checked in memory, before settling for a seen one.
+ *  - Safe for many games at once: the pools never change after construction.
+ */
+public final class TieredQuestionPools {
+
+    // draws per question before a game settles for one its player has seen
+    static final int SEEN_ATTEMPTS = 8;
+
+    private final QuestionBank bank;
+    private final int tiers;
+    private final int[] index;  // bank numbers grouped by tier
+    private final int[] start;  // tier t is index[start[t]] .. index[start[t + 1] - 1], t = 1..tiers
+
+    private TieredQuestionPools(QuestionBank bank, int tiers) {
+        this.bank = bank;
+        this.tiers = tiers;
+        int n = bank.size();
+        byte[] tierOf = new byte[n + 1];
+        int[] counts = new int[tiers + 2];
+        for (int i = 1; i <= n; i++) {
+            int t = bank.tierOf(i);
+            if (t == 0) {
+                t = tierAt(i, n, tiers);
+            }
+            t = Math.min(t, tiers);
+            tierOf[i] = (byte) t;
+            counts[t + 1]++;
+        }
+        this.start = new int[tiers + 2];
+        for (int t = 1; t <= tiers; t++) {
+            start[t + 1] = start[t] + counts[t + 1];
+        }
+        this.index = new int[n];
+        int[] fill = start.clone();
+        for (int i = 1; i <= n; i++) {
+            index[fill[tierOf[i]]++] = i;
+        }
+    }
+
+    // the tier an untagged question gets from its position (1..count) in a bank kept in
+    // difficulty order: the bank is cut into that many equal runs
+    static int tierAt(int position, int count, int tiers) {
+        return 1 + (int) ((long) (position - 1) * tiers / count);
+    }
+
+    // this method builds the pools for a bank and a ladder with that many tiers
+    public static TieredQuestionPools of(QuestionBank bank, int tiers) {
+        if (bank == null) throw new NullPointerException("bank");
+        if (tiers < 1 || tiers > Question.MAX_TIER) {
+            throw new IllegalArgumentException("tiers must be between 1 and " + Question.MAX_TIER);
+        }
+        return new TieredQuestionPools(bank, tiers);
+    }
+
+    // the bank the pools point into
+    public QuestionBank getBank() {
+        return bank;
+    }
+    // number of tiers (the ladder size the pools were built for)
+    public int tiers() {
+        return tiers;
+    }
+    // number of questions in one tier
+    public int poolSize(int tier) {
+        return tier < 1 || tier > tiers ? 0 : start[tier + 1] - start[tier];
+    }
+
+    // this method starts a new per-game draw
+    public Draw newDraw(SplittableRandom random) {
+        return new Draw(random);
+    }
+
+    // this method picks a whole game: bank numbers for questions 1..length, one per tier
+    public int[] drawGame(SplittableRandom random, int length) {
+        return drawGame(random, length, null);
+    }
+
+    // same as above, passing over questions the player has probably seen while the tier
+    // still has others (seen may be null)
+    public int[] drawGame(SplittableRandom random, int length, SeenFilter seen) {
+        if (length < 1 || length > bank.size()) {
+            throw new IllegalArgumentException("a game needs between 1 and " + bank.size() + " questions");
+        }
+        Draw draw = newDraw(random);
+        int[] order = new int[length];
+        int spare = 0; // seen questions drawn and passed over, kept for when a tier runs dry
+        int[] passed = seen == null ? null : new int[length * SEEN_ATTEMPTS];
+        int[] passedTier = seen == null ? null : new int[passed.length];
+        for (int q = 1; q <= length; q++) {
+            int tier = Math.min(q, tiers);
+            int pick = -1;
+            if (draw.remaining(tier) > 0) {
+                pick = draw.next(tier);
+                // only look again while the same tier has another question, so skipping
+                // never pushes the game onto easier or harder questions
+                for (int a = 1; seen != null && a < SEEN_ATTEMPTS && draw.remaining(tier) > 0
+                        && seen.mightHaveSeen(bank.idOf(pick)); a++) {
+                    passedTier[spare] = tier;
+                    passed[spare++] = pick;
+                    pick = draw.next(tier);
+                }
+            } else {
+                // the tier is used up: a seen question of this tier beats crossing to another
+                for (int k = spare - 1; k >= 0 && pick < 0; k--) {
+                    if (passedTier[k] == tier) {
+                        pick = passed[k];
+                        passed[k] = passed[--spare];
+                        passedTier[k] = passedTier[spare];
+                    }
+                }
+                if (pick < 0) pick = draw.next(tier);
+            }
+            if (pick < 0 && spare > 0) {
+                pick = passed[--spare]; // every question left has been seen, reuse one
+            }
+            order[q - 1] = pick;
+        }
+        return order;
+    }
+
+    /**
+     * One game's draw without replacement. Not thread safe, a game owns its Draw.
+     */
+    public final class Draw {
+        private final SplittableRandom random;
+        private final int[] taken = new int[tiers + 1];
+        private final Map<Integer, Integer> swapped = new HashMap<>();
+
+        private Draw(SplittableRandom random) {
+            if (random == null) throw new NullPointerException("random");
+            this.random = random;
+        }
+
+        // this method draws an unused question of the tier, or of the nearest tier that still
+        // has one when this tier has run out; -1 when every pool is used up
+        public int next(int tier) {
+            if (tier < 1 || tier > tiers) {
+                throw new IllegalArgumentException("tier must be between 1 and " + tiers);
+            }
+            for (int d = 0; d < tiers; d++) {
+                if (tier - d >= 1 && remaining(tier - d) > 0) return take(tier - d);
+                if (d > 0 && tier + d <= tiers && remaining(tier + d) > 0) return take(tier + d);
+            }
+            return -1;
+        }
+
+        private int remaining(int tier) {
+            return poolSize(tier) - taken[tier];
+        }
+
+        // one Fisher-Yates step on the tier's slice: swap a random unused slot to the front
+        private int take(int tier) {
+            int front = start[tier] + taken[tier];
+            int pick = front + random.nextInt(start[tier + 1] - front);
+            int chosen = valueAt(pick);
+            if (pick != front) {
+                swapped.put(pick, valueAt(front));
+            }
+            swapped.remove(front); // the front slot is used up and never read again
+            taken[tier]++;
+            return chosen;
+        }
+
+        private int valueAt(int pos) {
+            Integer v = swapped.get(pos);
+            return v == null ? index[pos] : v;
+        }
+    }
+}
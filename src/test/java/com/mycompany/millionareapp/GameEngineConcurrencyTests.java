@@ -0,0 +1,111 @@
+package com.mycompany.millionareapp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// these tests run lots of games at the same time on one shared engine and bank
+
+public class GameEngineConcurrencyTests {
+
+    private static final int THREADS = 16;
+    private static final int GAMES = 4000;
+
+    private GameEngine engine;
+
+    @BeforeEach
+    void setup() {
+        List<Question> questions = new ArrayList<>();
+        for (int i = 1; i <= 15; i++) {
+            questions.add(Question.of("Q" + i + "?", "A", "B", "C", "D", i % 4));
+        }
+        engine = new GameEngine(QuestionBank.copyOf(questions));
+    }
+
+    // each game answers a different number of questions correctly, then either
+    // misses one or wins; every result must match what a single game would get
+    @Test
+    void thousandsOfConcurrentGamesOnOneEngine() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int g = 0; g < GAMES; g++) {
+                final int game = g;
+                results.add(pool.submit(() -> play(game)));
+            }
+            for (int g = 0; g < GAMES; g++) {
+                int[] r = results.get(g).get();
+                int correctAnswers = g % 16;
+                int expected = correctAnswers >= 15
+                        ? MoneyTier.currentPrize(15)
+                        : MoneyTier.currentPrize(correctAnswers);
+                assertEquals(expected, r[0], "prize for game " + g);
+                assertEquals(2, r[1], "each game gets its own two lifelines");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // plays one game, returns {prize, lifelines used}
+    private int[] play(int game) {
+        GameState state = engine.startGame("P" + game);
+        int target = game % 16;
+        int lifelines = 0;
+        if (engine.useFiftyFiftyLifeLine(state).length == 2) lifelines++;
+        if (engine.revealCorrectAnswer(state) >= 0) lifelines++;
+        // second tries must fail within the same game
+        assertEquals(0, engine.useFiftyFiftyLifeLine(state).length);
+        assertEquals(-1, engine.revealCorrectAnswer(state));
+
+        for (int n = 0; !engine.gameIsOver(state); n++) {
+            int correct = engine.getCurrentQuestion(state).getCorrectAnswer();
+            engine.answer(state, n < target ? correct : (correct + 1) % 4);
+        }
+        return new int[]{engine.currentPrizeGet(state), lifelines};
+    }
+
+    // many threads racing to use the 50/50 on the same game: only one may win
+    @Test
+    void lifelineCanOnlyBeSpentOncePerGameUnderContention() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < 200; round++) {
+                GameState state = engine.startGame("Racer");
+                CountDownLatch go = new CountDownLatch(1);
+                AtomicInteger winners = new AtomicInteger();
+                List<Callable<Void>> racers = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    racers.add(() -> {
+                        go.await();
+                        if (engine.useFiftyFiftyLifeLine(state).length == 2) {
+                            winners.incrementAndGet();
+                        }
+                        return null;
+                    });
+                }
+                List<Future<Void>> running = new ArrayList<>();
+                for (Callable<Void> r : racers) {
+                    running.add(pool.submit(r));
+                }
+                go.countDown();
+                for (Future<Void> f : running) {
+                    f.get();
+                }
+                assertEquals(1, winners.get(), "50/50 spent exactly once");
+                assertEquals(1, state.getLifelineUses().size());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,650 @@
+package com.mycompany.millionareapp;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// these tests run the repository against a throwaway in-memory Derby database
+
+public class GameRepositoryTests {
+
+    private static final AtomicInteger DB_COUNTER = new AtomicInteger();
+
+    private GameRepository repo;
+
+    @BeforeEach
+    void setup() {
+        repo = new GameRepository("memory:repoTest" + DB_COUNTER.incrementAndGet(), 2);
+        repo.ensureSchema();
+        repo.seedIfEmpty(List.of(
+                Question.of("Q1?", "A", "B", "C", "D", 1),
+                Question.of("Q2?", "A", "B", "C", "D", 2)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        repo.close();
+    }
+
+    // this test checks that repeated calls reuse pooled connections and cached statements
+    @Test
+    void poolReusesConnectionsAndStatements() {
+        for (int i = 0; i < 5; i++) {
+            long player = repo.ensurePlayer("Tester");
+            repo.startSession(player);
+            assertEquals(2, repo.findAllQuestions().size());
+        }
+        ConnectionPool.Stats stats = repo.poolStats();
+        assertTrue(stats.open() <= 2, "never more connections than the pool size");
+        assertEquals(0, stats.active(), "every connection was given back");
+        assertTrue(stats.statementHits() > 0, "prepared statements were reused");
+    }
+
+    // this test checks that cached statements point back at the pooled connection and
+    // aren't closed under a caller that still has them
+    @Test
+    void cachedStatementsStayOpenWhileCheckedOut() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(
+                "jdbc:derby:memory:stmtTest" + DB_COUNTER.incrementAndGet() + ";create=true",
+                1, 1, 1000, ConnectionPool.LEAK_DETECTION_OFF);
+        try (Connection cn = pool.borrow()) {
+            java.sql.PreparedStatement first = cn.prepareStatement("VALUES 1");
+            assertSame(cn, first.getConnection(), "the pooled connection, not the physical one");
+            java.sql.PreparedStatement second = cn.prepareStatement("VALUES 2"); // evicts the first
+            java.sql.PreparedStatement again = cn.prepareStatement("VALUES 2"); // same SQL, still open
+            try (java.sql.ResultSet rs = first.executeQuery()) {
+                assertTrue(rs.next(), "an evicted statement still works until its caller closes it");
+                assertEquals(1, rs.getInt(1));
+            }
+            try (java.sql.ResultSet a = second.executeQuery(); java.sql.ResultSet b = again.executeQuery()) {
+                assertTrue(a.next() && b.next(), "two open statements for one SQL don't share a cursor");
+            }
+            first.close();
+            assertTrue(first.isClosed());
+            second.close();
+            again.close();
+        }
+        try (Connection cn = pool.borrow(); java.sql.PreparedStatement ps = cn.prepareStatement("VALUES 2")) {
+            assertTrue(ps.executeQuery().next());
+            assertTrue(pool.stats().statementHits() > 0, "the cached statement is reused");
+        }
+        Connection out = pool.borrow();
+        pool.close();
+        out.close();
+        assertEquals(0, pool.stats().open(), "returned after close, so closed rather than parked");
+    }
+
+    // this test checks that a connection held too long is reported as a leak
+    @Test
+    void heldConnectionIsReportedAsLeak() throws SQLException {
+        try (ConnectionPool pool = new ConnectionPool(
+                "jdbc:derby:memory:leakTest" + DB_COUNTER.incrementAndGet() + ";create=true",
+                1, 4, 50, 0)) {
+            Connection held = pool.borrow();
+            assertEquals(1, pool.stats().suspectedLeaks());
+            SQLException ex = assertThrows(SQLException.class, pool::borrow,
+                    "the only connection is out so borrowing times out");
+            assertTrue(ex.getMessage().contains("suspected leak"));
+            held.close();
+            assertEquals(0, pool.stats().suspectedLeaks());
+        }
+        // with leak detection off nothing is tracked, so nothing is reported
+        try (ConnectionPool pool = new ConnectionPool(
+                "jdbc:derby:memory:leakTest" + DB_COUNTER.incrementAndGet() + ";create=true",
+                1, 4, 50, ConnectionPool.LEAK_DETECTION_OFF)) {
+            Connection held = pool.borrow();
+            assertEquals(0, pool.stats().suspectedLeaks());
+            SQLException ex = assertThrows(SQLException.class, pool::borrow);
+            assertTrue(ex.getMessage().contains("no suspected leaks"));
+            held.close();
+        }
+    }
+
+    // this test checks that the question snapshot is shared until QUESTION changes
+    @Test
+    void questionSnapshotIsSharedUntilQuestionsChange() {
+        QuestionSnapshot first = repo.questionSnapshot();
+        assertSame(first, repo.questionSnapshot(), "same snapshot while nothing changed");
+        assertEquals(2, first.size());
+        assertThrows(UnsupportedOperationException.class,
+                () -> first.getBank().add(Question.of("X?", "A", "B", "C", "D", 0)));
+
+        try (GameRepository fresh = new GameRepository("memory:repoTest" + DB_COUNTER.incrementAndGet(), 1)) {
+            fresh.ensureSchema();
+            QuestionSnapshot empty = fresh.questionSnapshot();
+            assertTrue(empty.isEmpty());
+            fresh.seedIfEmpty(List.of(Question.of("Q1?", "A", "B", "C", "D", 1)));
+            QuestionSnapshot seeded = fresh.questionSnapshot();
+            assertNotSame(empty, seeded, "seeding bumps the question version");
+            assertEquals(1, seeded.size());
+        }
+    }
+
+    // this test checks that the in-memory leaderboard matches the SQL ordering
+    @Test
+    void leaderboardIsKeptUpToDateByFinishSession() {
+        repo.loadLeaderboard();
+        java.time.Instant now = java.time.Instant.now();
+        int[] winnings = {1000, 32000, 0, 32000, 500};
+        for (int i = 0; i < winnings.length; i++) {
+            long player = repo.ensurePlayer("P" + i);
+            long session = repo.startSession(player);
+            repo.finishSession(session, winnings[i], 10, now.plusSeconds(i));
+        }
+        List<Object[]> top = repo.topSessions(3);
+        assertEquals(3, top.size());
+        assertEquals("P3", top.get(0)[0], "ties go to the most recent game");
+        assertEquals("P1", top.get(1)[0]);
+        assertEquals(1000, top.get(2)[1]);
+
+        List<Object[]> fromSql = repo.topSessions(1000);
+        for (int i = 0; i < top.size(); i++) {
+            assertArrayEquals(fromSql.get(i), top.get(i), "memory and SQL agree");
+        }
+    }
+
+    // this test checks rank and percentile lookups against a few finished games
+    @Test
+    void rankLookupsCountBetterGames() {
+        java.time.Instant now = java.time.Instant.now();
+        int[] winnings = {0, 1000, 1000, 32000};
+        long lastSession = -1;
+        for (int i = 0; i < winnings.length; i++) {
+            long session = repo.startSession(repo.ensurePlayer("R" + i));
+            repo.finishSession(session, winnings[i], 5, now);
+            lastSession = session;
+        }
+        repo.loadLeaderboard();
+        RankIndex.Rank mid = repo.rankOf(1000);
+        assertEquals(2, mid.rank(), "only the 32000 game is better");
+        assertEquals(4, mid.total());
+        assertEquals(25.0, mid.percentile(), 0.001);
+
+        assertEquals(1, repo.rankOfSession(lastSession).rank());
+        assertEquals(4, repo.rankOfPlayer("R0").rank());
+        assertNull(repo.rankOfPlayer("nobody"));
+
+        // finishing after the load updates the index in place
+        repo.finishSession(repo.startSession(repo.ensurePlayer("R9")), 64000, 5, now);
+        assertEquals(3, repo.rankOf(1000).rank());
+    }
+
+    // this test checks that returning players come from the cache and that
+    // a name registered elsewhere is picked up through the duplicate-key path
+    @Test
+    void ensurePlayerUsesCacheAndSurvivesDuplicateNames() {
+        long first = repo.ensurePlayer("Alice");
+        assertEquals(first, repo.ensurePlayer(" Alice "));
+        GameRepository.PlayerCacheStats stats = repo.playerCacheStats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+
+        try (GameRepository other = new GameRepository("memory:repoTest" + DB_COUNTER.get(), 1)) {
+            assertEquals(first, other.ensurePlayer("Alice"), "same id from a cold cache");
+            assertEquals(1, other.playerCacheStats().duplicateKeyRetries());
+        }
+    }
+
+    // this test checks that queued starts and finishes end up in GAME_SESSION
+    @Test
+    void writeBehindCoalescesAndFlushesSessions() throws Exception {
+        repo.loadLeaderboard();
+        try (SessionWriteBehind writer = new SessionWriteBehind(repo, 4, 16)) {
+            long player = repo.ensurePlayer("Queued");
+            java.util.List<SessionWriteBehind.Session> started = new java.util.ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                SessionWriteBehind.Session s = writer.start(player);
+                writer.finish(s, 1000 * i, i, java.time.Instant.now());
+                started.add(s);
+            }
+            writer.flush();
+            for (SessionWriteBehind.Session s : started) {
+                assertTrue(s.id().get(5, java.util.concurrent.TimeUnit.SECONDS) > 0);
+            }
+            assertEquals(0, writer.stats().failures());
+            assertEquals(0, writer.stats().queueDepth());
+
+            // a game resumed after a restart finishes the row it started, it doesn't add one
+            SessionWriteBehind.Session open = writer.start(player);
+            writer.flush();
+            long id = open.id().get(5, java.util.concurrent.TimeUnit.SECONDS);
+            SessionWriteBehind.Session resumed = writer.resume(player, id, open.getStartedAt());
+            writer.finish(resumed, 50_000, 30, java.time.Instant.now());
+            writer.flush();
+        }
+        List<Object[]> top = repo.topSessions(1);
+        assertEquals("Queued", top.get(0)[0]);
+        assertEquals(50_000, top.get(0)[1]);
+        assertEquals(11, repo.rankOf(0).total());
+    }
+
+    // this test checks a just-finished game is ranked counting itself, and that a failed
+    // session write is tried again instead of being dropped
+    @Test
+    void finishedGamesAreRankedAndFailedWritesRetried() throws Exception {
+        repo.loadLeaderboard();
+        java.time.Instant now = java.time.Instant.now();
+        repo.finishSession(repo.startSession(repo.ensurePlayer("Early")), 1000, 5, now);
+        repo.finishSession(repo.startSession(repo.ensurePlayer("Early")), 64000, 5, now);
+        RankIndex.Rank rank = repo.rankOfNewGame(32000);
+        assertEquals(2, rank.rank());
+        assertEquals(3, rank.total(), "the new game counts itself");
+        assertEquals(100.0 / 3, rank.percentile(), 0.001);
+
+        AtomicInteger calls = new AtomicInteger();
+        try (GameRepository flaky = new GameRepository("memory:repoTest" + DB_COUNTER.get(), 1) {
+            @Override
+            long[] writeSessions(List<SessionWriteBehind.Write> writes) {
+                if (calls.incrementAndGet() == 1) {
+                    throw new IllegalStateException("database hiccup");
+                }
+                return super.writeSessions(writes);
+            }
+        }) {
+            flaky.loadLeaderboard();
+            try (SessionWriteBehind writer = new SessionWriteBehind(flaky)) {
+                SessionWriteBehind.Session s = writer.start(flaky.ensurePlayer("Unlucky"));
+                writer.finish(s, 32000, 5, now);
+                writer.flush();
+                assertTrue(s.id().get(5, java.util.concurrent.TimeUnit.SECONDS) > 0);
+                assertEquals(1, writer.stats().failures());
+                assertEquals(1, writer.stats().retries());
+                assertEquals(0, writer.stats().dropped());
+            }
+            assertEquals(rank, flaky.rankOf(32000), "the written game ranks as predicted");
+        }
+    }
+
+    // this test checks that one session that can't be written doesn't drop the rest of
+    // its batch, and that lifelines on a question a sync removed don't fail the write
+    @Test
+    void failedBatchesFallBackToWritingEachSession() throws Exception {
+        repo.loadLeaderboard();
+        long poison = repo.ensurePlayer("Poison");
+        java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        try (GameRepository flaky = new GameRepository("memory:repoTest" + DB_COUNTER.get(), 1) {
+            @Override
+            long[] writeSessions(List<SessionWriteBehind.Write> writes) {
+                if (calls.incrementAndGet() == 1) {
+                    try {
+                        release.await(); // holds the writer so the next sessions share a batch
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                for (SessionWriteBehind.Write w : writes) {
+                    if (w.playerId() == poison) {
+                        throw new IllegalStateException("bad row");
+                    }
+                }
+                return super.writeSessions(writes);
+            }
+        }) {
+            flaky.loadLeaderboard();
+            java.time.Instant now = java.time.Instant.now();
+            List<LifelineUse> gone = List.of(new LifelineUse(LifelineUse.FIFTY_FIFTY, 987654, 1, now));
+            try (SessionWriteBehind writer = new SessionWriteBehind(flaky)) {
+                SessionWriteBehind.Session first = writer.start(flaky.ensurePlayer("First"));
+                writer.finish(first, 1000, 5, now);
+                while (calls.get() == 0) {
+                    Thread.sleep(5);
+                }
+                SessionWriteBehind.Session good = writer.start(flaky.ensurePlayer("Good"));
+                writer.finish(good, 16000, 5, now, gone);
+                SessionWriteBehind.Session bad = writer.start(poison);
+                writer.finish(bad, 8000, 5, now);
+                release.countDown();
+                writer.flush();
+
+                assertTrue(first.id().get(5, java.util.concurrent.TimeUnit.SECONDS) > 0);
+                assertTrue(good.id().get(5, java.util.concurrent.TimeUnit.SECONDS) > 0,
+                        "the good session is written even though its batch failed");
+                assertThrows(java.util.concurrent.ExecutionException.class,
+                        () -> bad.id().get(5, java.util.concurrent.TimeUnit.SECONDS));
+                assertEquals(1, writer.stats().dropped(), "only the bad session is dropped");
+            }
+            assertEquals(2, flaky.rankOf(0).total());
+            assertTrue(flaky.lifelineUsageByQuestion().isEmpty(), "the missing question's lifeline is skipped");
+        }
+    }
+
+    // this test checks that lifelines used in a game are written with the session
+    @Test
+    void lifelineUsageIsWrittenWithTheFinishedSession() {
+        GameEngine engine = new GameEngine(repo.questionSnapshot().getBank());
+        GameState state = engine.startGame("Helper");
+        engine.useFiftyFiftyLifeLine(state);
+        engine.revealCorrectAnswer(state);
+        engine.answer(state, (engine.getCurrentQuestion(state).getCorrectAnswer() + 1) % 4);
+
+        try (SessionWriteBehind writer = new SessionWriteBehind(repo)) {
+            SessionWriteBehind.Session s = writer.start(repo.ensurePlayer("Helper"));
+            writer.finish(s, 0, 3, java.time.Instant.now(), state.getLifelineUses());
+            writer.flush();
+        }
+        List<GameRepository.LifelineUsage> byQuestion = repo.lifelineUsageByQuestion();
+        assertEquals(2, byQuestion.size(), "50/50 and reveal on the first question");
+        long firstId = repo.questionSnapshot().getBank().getByNumber(1).getId();
+        for (GameRepository.LifelineUsage u : byQuestion) {
+            assertEquals(firstId, u.key());
+            assertEquals(1, u.uses());
+            assertEquals(1.0, u.rate(), 0.001);
+        }
+        assertEquals(1, repo.lifelineUsageByTier().get(0).key());
+    }
+
+    // this test checks the file sync: claims seeded rows by text, keeps file order, retires
+    // questions that lifeline history points at, and skips work when the file is unchanged
+    @Test
+    void syncQuestionsAppliesOnlyTheChanges(@org.junit.jupiter.api.io.TempDir java.nio.file.Path dir)
+            throws java.io.IOException {
+        Question q1 = repo.questionSnapshot().getBank().getByNumber(1);
+        try (SessionWriteBehind writer = new SessionWriteBehind(repo)) {
+            SessionWriteBehind.Session s = writer.start(repo.ensurePlayer("Syncer"));
+            writer.finish(s, 0, 1, java.time.Instant.now(),
+                    List.of(new LifelineUse(LifelineUse.REVEAL, q1.getId(), 1, java.time.Instant.now())));
+            writer.flush();
+        }
+
+        java.nio.file.Path txt = dir.resolve("questions.txt");
+        java.nio.file.Files.writeString(txt, "B|Q2?|A|B|C|D|C\nN|New?|A|B|C|D|A\n");
+        FileQuestionRepository files = new FileQuestionRepository(txt);
+
+        GameRepository.QuestionSync first = repo.syncQuestions(files);
+        assertEquals(new GameRepository.QuestionSync(1, 0, 1, 0, 1), first);
+        QuestionBank bank = repo.questionSnapshot().getBank();
+        assertEquals(2, bank.size());
+        assertEquals("Q2?", bank.getByNumber(1).getQuestion());
+        assertEquals("New?", bank.getByNumber(2).getQuestion());
+        assertEquals(files.fingerprint(), repo.questionFingerprint());
+
+        long version = repo.questionVersion();
+        assertFalse(repo.syncQuestions(files).changed(), "same file, nothing to do");
+        assertEquals(version, repo.questionVersion());
+
+        java.nio.file.Files.writeString(txt, "B|Q2 reworded?|A|B|C|D|C\n");
+        assertEquals(new GameRepository.QuestionSync(0, 1, 0, 1, 0), repo.syncQuestions(files));
+        assertEquals("Q2 reworded?", repo.questionSnapshot().getBank().getByNumber(1).getQuestion());
+        assertEquals(1, repo.questionSnapshot().size());
+    }
+
+    // this test checks rows from before QUESTION had positions (POS is NULL) are adopted by
+    // the sync and numbered in file order
+    @Test
+    void syncAdoptsRowsWithoutPositions(@org.junit.jupiter.api.io.TempDir java.nio.file.Path dir)
+            throws Exception {
+        try (Connection cn = repo.getConnection(); java.sql.Statement st = cn.createStatement()) {
+            st.executeUpdate("UPDATE QUESTION SET POS = NULL");
+        }
+        java.nio.file.Path txt = dir.resolve("questions.txt");
+        java.nio.file.Files.writeString(txt, "B|Q2?|A|B|C|D|C\nA|Q1?|A|B|C|D|B\n");
+        assertEquals(new GameRepository.QuestionSync(0, 0, 2, 0, 0),
+                repo.syncQuestions(new FileQuestionRepository(txt)));
+        QuestionBank bank = repo.questionSnapshot().getBank();
+        assertEquals("Q2?", bank.getByNumber(1).getQuestion());
+        assertEquals("Q1?", bank.getByNumber(2).getQuestion());
+    }
+
+    // this test checks syncing the questions file leaves bulk-imported questions alone and
+    // keeps them after the file's questions
+    @Test
+    void fileSyncKeepsImportedQuestions(@org.junit.jupiter.api.io.TempDir java.nio.file.Path dir)
+            throws java.io.IOException {
+        List<Question> bulk = new java.util.ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            bulk.add(Question.of("Imported " + i + "?", "A", "B", "C", "D", i % 4));
+        }
+        new QuestionImport(repo, "extra").run(QuestionBank.copyOf(bulk));
+
+        java.nio.file.Path txt = dir.resolve("questions.txt");
+        java.nio.file.Files.writeString(txt, "B|Q2?|A|B|C|D|C\nN|New?|A|B|C|D|A\n");
+        FileQuestionRepository files = new FileQuestionRepository(txt);
+        repo.syncQuestions(files);
+        java.nio.file.Files.writeString(txt, "N|New?|A|B|C|D|A\nM|More?|A|B|C|D|B\n");
+        assertEquals(new GameRepository.QuestionSync(1, 0, 1, 1, 0), repo.syncQuestions(files));
+
+        QuestionBank bank = repo.questionSnapshot().getBank();
+        assertEquals(5, bank.size());
+        assertEquals("New?", bank.getByNumber(1).getQuestion());
+        assertEquals("More?", bank.getByNumber(2).getQuestion());
+        for (int i = 1; i <= 3; i++) {
+            assertEquals("Imported " + i + "?", bank.getByNumber(2 + i).getQuestion());
+        }
+    }
+
+    // this test checks a bulk import that fails half way resumes from its last committed chunk
+    @Test
+    void questionImportResumesAfterAFailedChunk() {
+        List<Question> all = new java.util.ArrayList<>();
+        for (int i = 1; i <= 35; i++) {
+            all.add(Question.of("Bulk " + i + "?", "A", "B", "C", "D", i % 4));
+        }
+        QuestionBank source = QuestionBank.copyOf(all);
+        QuestionBank failsAt27 = new QuestionBank(List.of()) {
+            @Override public int size() { return source.size(); }
+            @Override public Question getByNumber(int n) {
+                if (n == 27) throw new IllegalStateException("disk on fire");
+                return source.getByNumber(n);
+            }
+        };
+        List<QuestionImport.Progress> progress = new java.util.ArrayList<>();
+        int before = repo.countQuestions();
+
+        QuestionImport first = new QuestionImport(repo, "bulk", 10, progress::add);
+        assertThrows(IllegalStateException.class, () -> first.run(failsAt27));
+        assertEquals(20, first.committed(), "two whole chunks made it in");
+        assertEquals(before + 20, repo.countQuestions());
+
+        QuestionImport.Result result = new QuestionImport(repo, "bulk", 10, progress::add).run(source);
+        assertEquals(15, result.inserted());
+        assertEquals(20, result.skipped());
+        assertTrue(progress.get(progress.size() - 1).done());
+        assertTrue(new QuestionImport(repo, "bulk").isFinished());
+        assertEquals(0, new QuestionImport(repo, "bulk").run(source).inserted(), "finished imports don't run again");
+        assertEquals(before + 35, repo.countQuestions());
+    }
+
+    // this test checks sampleGame picks one different question per tier in the database
+    @Test
+    void sampleGameDrawsOneQuestionPerTier() {
+        List<Question> tiered = new java.util.ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            int tier = 1 + i % 15;
+            tiered.add(Question.of(0L, tier, "Tier " + tier + " #" + i + "?", "A", "B", "C", "D", i % 4));
+        }
+        new QuestionImport(repo, "tiered").run(QuestionBank.copyOf(tiered));
+
+        for (int round = 0; round < 20; round++) {
+            List<Question> game = repo.sampleGame(15);
+            assertEquals(15, game.size());
+            for (int t = 1; t <= 15; t++) {
+                assertEquals(t, game.get(t - 1).getTier());
+            }
+        }
+        List<Question> tier3 = repo.sampleTier(3, 10);
+        assertEquals(4, tier3.size(), "only 4 questions in tier 3");
+        assertEquals(4, tier3.stream().map(Question::getId).distinct().count());
+
+        // only untagged questions (the two seeded ones): the game is as long as the table
+        try (GameRepository small = new GameRepository("memory:repoTest" + DB_COUNTER.incrementAndGet(), 1)) {
+            small.ensureSchema();
+            small.seedIfEmpty(List.of(Question.of("Only?", "A", "B", "C", "D", 0),
+                    Question.of("Two?", "A", "B", "C", "D", 1)));
+            List<Question> game = small.sampleGame(15);
+            assertEquals(2, game.size());
+            assertNotEquals(game.get(0).getId(), game.get(1).getId());
+        }
+    }
+
+    // this test checks untagged file questions are written with tiers from their position, so
+    // sampled games keep the file's order, and that sampling passes over seen questions
+    @Test
+    void sampledGamesKeepTheFileOrderAndSkipSeenQuestions(@org.junit.jupiter.api.io.TempDir java.nio.file.Path dir)
+            throws Exception {
+        StringBuilder file = new StringBuilder();
+        for (int i = 1; i <= 30; i++) {
+            file.append("F").append(i).append("|File ").append(i).append("?|A|B|C|D|A\n");
+        }
+        java.nio.file.Path txt = dir.resolve("questions.txt");
+        java.nio.file.Files.writeString(txt, file);
+        repo.syncQuestions(new FileQuestionRepository(txt));
+        List<Question> all = repo.findAllQuestions();
+        assertEquals(30, all.size());
+        for (int i = 0; i < 30; i++) {
+            assertEquals(1 + i / 2, all.get(i).getTier(), "two questions per tier, in file order");
+        }
+        List<Question> game = repo.sampleGame(15);
+        for (int t = 1; t <= 15; t++) {
+            assertEquals(t, game.get(t - 1).getTier());
+        }
+
+        // the first question of every tier is seen and sits at both ends of the RAND_KEY order
+        // (a seek past the last key wraps round to it), so nearly every draw lands on the other
+        SeenFilter seen = new SeenFilter();
+        SeenFilter seenAll = new SeenFilter();
+        try (Connection cn = repo.getConnection();
+             java.sql.PreparedStatement ps = cn.prepareStatement("UPDATE QUESTION SET RAND_KEY = ? WHERE ID = ?")) {
+            for (int i = 0; i < 30; i++) {
+                long id = all.get(i).getId();
+                if (i % 2 == 0) seen.add(id);
+                seenAll.add(id);
+                ps.setDouble(1, i % 2 == 0 ? 0.001 : 0.999);
+                ps.setLong(2, id);
+                ps.executeUpdate();
+            }
+        }
+        for (int round = 0; round < 10; round++) {
+            for (Question q : repo.sampleGame(15, seen)) {
+                assertFalse(seen.mightHaveSeen(q.getId()), "an unseen question of the tier was there");
+            }
+        }
+        game = repo.sampleGame(15, seenAll);
+        for (int t = 1; t <= 15; t++) {
+            assertEquals(t, game.get(t - 1).getTier(), "all seen: a seen question of the same tier");
+        }
+        long[] ids = game.stream().mapToLong(Question::getId).toArray();
+        assertEquals(game.get(4).getQuestion(), repo.findQuestions(ids).get(4).getQuestion());
+    }
+
+    @Test
+    void lazyQuestionBankCachesTextAndPrefetches() throws Exception {
+        List<Question> qs = new java.util.ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            qs.add(Question.of(0L, 1 + i % 5, "Lazy " + i + "?", "A" + i, "B", "C", "D", i % 4));
+        }
+        new QuestionImport(repo, "lazy").run(QuestionBank.copyOf(qs));
+        List<Question> all = repo.findAllQuestions();
+
+        LazyQuestionBank bank = repo.lazyQuestionBank(4);
+        assertEquals(all.size(), bank.size());
+        assertEquals(0, bank.stats().cached(), "nothing loaded until asked");
+        for (int i = 1; i <= bank.size(); i++) {
+            assertEquals(all.get(i - 1).getTier(), bank.tierOf(i));
+            assertEquals(all.get(i - 1).getCorrectAnswer(), bank.correctOf(i));
+        }
+        assertEquals(0, bank.stats().misses(), "tier and correct come from the eager arrays");
+
+        Question q = bank.getByNumber(5);
+        assertEquals(all.get(4).getQuestion(), q.getQuestion());
+        assertEquals(all.get(4).getId(), q.getId());
+        assertSame(q, bank.getByNumber(5));
+        for (int i = 6; i <= 10; i++) bank.getByNumber(i);
+        LazyQuestionBank.Stats s = bank.stats();
+        assertEquals(1, s.hits());
+        assertEquals(6, s.misses());
+        assertEquals(4, s.cached(), "the cache never grows past its size");
+        assertEquals(2, s.evictions());
+
+        bank.prefetch(1);
+        for (int i = 0; i < 200 && bank.stats().prefetches() == 0; i++) Thread.sleep(10);
+        assertEquals(1, bank.stats().prefetches());
+        assertEquals(all.get(0).getQuestion(), bank.getByNumber(1).getQuestion());
+        assertEquals(2, bank.stats().hits(), "the prefetched question is a hit");
+
+        // asking while the prefetch is still fetching waits for it instead of fetching again
+        java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        LazyQuestionBank slow = new LazyQuestionBank(new long[]{11, 12}, new byte[]{0, 1}, new byte[]{1, 2},
+                (number, id) -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await(5, java.util.concurrent.TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return new String[]{"Slow " + id + "?", "A", "B", "C", "D"};
+                }, 4);
+        slow.prefetch(2);
+        for (int i = 0; i < 200 && loads.get() == 0; i++) Thread.sleep(10);
+        java.util.concurrent.CompletableFuture<Question> asked =
+                java.util.concurrent.CompletableFuture.supplyAsync(() -> slow.getByNumber(2));
+        Thread.sleep(100);
+        release.countDown();
+        assertEquals("Slow 12?", asked.get(5, java.util.concurrent.TimeUnit.SECONDS).getQuestion());
+        assertEquals(1, loads.get(), "the text was only fetched once");
+        assertEquals(1, slow.stats().hits(), "waiting on the prefetch is a hit");
+        assertEquals(0, slow.stats().misses());
+
+        // big enough tables get a lazy bank as their shared snapshot
+        try (GameRepository big = new GameRepository("memory:repoTest" + DB_COUNTER.get(), 2) {
+            @Override
+            int lazyThreshold() {
+                return 10;
+            }
+        }) {
+            QuestionBank snap = big.questionSnapshot().getBank();
+            assertTrue(snap instanceof LazyQuestionBank);
+            assertEquals(all.size(), snap.size());
+            assertEquals(all.get(2).getId(), snap.idOf(3));
+            assertEquals(all.get(2).getQuestion(), snap.getByNumber(3).getQuestion());
+        }
+    }
+
+    @Test
+    void seenFilterSkipsSeenQuestionsAndIsSavedWithTheSession() {
+        List<Question> qs = new java.util.ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            qs.add(Question.of(0L, 1 + i % 15, "Seen " + i + "?", "A", "B", "C", "D", i % 4));
+        }
+        new QuestionImport(repo, "seen").run(QuestionBank.copyOf(qs));
+        QuestionBank bank = QuestionBank.copyOf(repo.findAllQuestions());
+        GameEngine engine = new GameEngine(bank, PrizeLadder.classic(), TieredQuestionPools.of(bank, 15));
+
+        long player = repo.ensurePlayer("Regular");
+        SeenFilter seen = repo.seenFilter(player);
+        assertSame(seen, repo.seenFilter(player), "loaded once, then kept in memory");
+        GameState first = engine.startGame("Regular", seen);
+        while (!engine.gameIsOver(first)) {
+            engine.answer(first, engine.getCurrentQuestion(first).getCorrectAnswer());
+        }
+        engine.markSeen(first, seen);
+        assertEquals(15, seen.size());
+
+        // the next game avoids all 15 (every tier has at least 3 other questions)
+        GameState second = engine.startGame("Regular", seen);
+        for (int n = 1; n <= 15; n++) {
+            assertFalse(seen.mightHaveSeen(bank.idOf(second.getBankNumber(n))), "question " + n + " is new");
+        }
+
+        try (SessionWriteBehind writer = new SessionWriteBehind(repo)) {
+            SessionWriteBehind.Session s = writer.start(player);
+            writer.finish(s, 1_000_000, 60, java.time.Instant.now(), List.of(), seen);
+            writer.flush();
+        }
+        assertFalse(seen.isDirty());
+        try (GameRepository reopened = new GameRepository("memory:repoTest" + DB_COUNTER.get(), 1)) {
+            SeenFilter loaded = reopened.seenFilter(player);
+            assertEquals(15, loaded.size());
+            for (int n = 1; n <= 15; n++) {
+                assertTrue(loaded.mightHaveSeen(bank.idOf(first.getBankNumber(n))));
+            }
+        }
+    }
+}
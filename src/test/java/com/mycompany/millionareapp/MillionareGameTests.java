@@ -86,4 +86,464 @@ public class MillionareGameTests {
         int idx2 = engine.revealCorrectAnswer(state);
         assertEquals(-1, idx2, "Reveal can be used only once");
     }
+    // this test checks that a game follows its own prize ladder and safe havens
+    @Test
+    void customLadderPrizesAndSafeHavens() {
+        PrizeLadder shortLadder = new PrizeLadder("SHORT", new int[]{10, 20, 50}, 2);
+        GameEngine shortEngine = new GameEngine(bank, shortLadder);
+        GameState s = shortEngine.startGame("Tester");
+
+        shortEngine.answer(s, shortEngine.getCurrentQuestion(s).getCorrectAnswer());
+        assertEquals(10, s.getCurrentPrize());
+        assertEquals(0, s.getGuaranteedPrize(), "no safe haven passed yet");
+
+        shortEngine.answer(s, shortEngine.getCurrentQuestion(s).getCorrectAnswer());
+        assertEquals(20, s.getGuaranteedPrize(), "question 2 is a safe haven");
+
+        shortEngine.answer(s, shortEngine.getCurrentQuestion(s).getCorrectAnswer());
+        assertTrue(shortEngine.isWon(s));
+        assertEquals(50, shortEngine.currentPrizeGet(s), "winner takes the top of the ladder");
+
+        assertEquals(MoneyTier.payoutLoss(12), PrizeLadder.classic().safePayout(12));
+        assertEquals(MoneyTier.Q7, MoneyTier.byNumber(7));
+    }
+    // this test checks the shipped data/ladders.txt parses and CLASSIC matches the built-in ladder
+    @Test
+    void shippedLaddersFileParses() throws java.io.IOException {
+        java.util.Map<String, PrizeLadder> ladders = PrizeLadder.loadAll(java.nio.file.Paths.get("data", "ladders.txt"));
+        assertEquals(java.util.List.of("CLASSIC", "QUICK"), java.util.List.copyOf(ladders.keySet()));
+
+        PrizeLadder classic = ladders.get("CLASSIC");
+        assertEquals(PrizeLadder.classic().size(), classic.size());
+        for (int q = 1; q <= classic.size(); q++) {
+            assertEquals(PrizeLadder.classic().prize(q), classic.prize(q), "question " + q);
+            assertEquals(PrizeLadder.classic().isSafe(q), classic.isSafe(q), "question " + q);
+        }
+
+        PrizeLadder quick = ladders.get("QUICK");
+        assertEquals(10, quick.size());
+        assertEquals(500_000, quick.topPrize());
+        assertEquals(2000, quick.safePayout(6), "question 3 is the last safe haven before 7");
+        assertEquals(50_000, quick.safePayout(9));
+    }
+    // this test checks that the question file parser keeps going and reports every bad line
+    @Test
+    void parserReportsEveryMalformedLine() throws java.io.IOException {
+        String text = "# comment\n"
+                + "Q1| What is 2+2? |3|4|5|6|b\r\n"
+                + "Q2|Missing a field|A|B|C|A\n"
+                + "\n"
+                + "Q3|Bad letter|A|B|C|D|E\n"
+                + "Q4|Last one|A|B|C|D|D";
+        java.util.List<Question> parsed = new java.util.ArrayList<>();
+        QuestionFileParser.Report report = QuestionFileParser.parse(
+                new java.io.StringReader(text), "test.txt", (line, id, q) -> parsed.add(q));
+
+        assertEquals(2, parsed.size());
+        assertEquals("What is 2+2?", parsed.get(0).getQuestion());
+        assertEquals(1, parsed.get(0).getCorrectAnswer());
+        assertEquals(3, parsed.get(1).getCorrectAnswer());
+        assertEquals(2, report.getErrorCount());
+        assertTrue(report.getErrors().get(0).contains("line: 3"));
+        assertTrue(report.getErrors().get(1).contains("line: 5"));
+    }
+    // this test checks the compiled snapshot reads back the same questions and is
+    // rebuilt when the text file changes
+    @Test
+    void compiledSnapshotMatchesTextAndRebuildsOnChange(@org.junit.jupiter.api.io.TempDir java.nio.file.Path dir)
+            throws java.io.IOException {
+        java.nio.file.Path txt = dir.resolve("questions.txt");
+        java.nio.file.Files.writeString(txt, "Q1|Caf\u00e9 or tea?|Caf\u00e9|Tea|Both|Neither|C\nQ2|Second?|A|B|C|D|a\n");
+        FileQuestionRepository files = new FileQuestionRepository(txt);
+
+        QuestionBank bank = files.loadCompiled();
+        assertTrue(bank instanceof CompiledQuestionBank);
+        assertEquals(2, bank.size());
+        assertEquals("Caf\u00e9 or tea?", bank.getByNumber(1).getQuestion());
+        assertEquals("Caf\u00e9", bank.getByNumber(1).getOption(0).getText());
+        assertEquals(2, bank.getByNumber(1).getCorrectAnswer());
+        assertEquals(0, bank.getByNumber(2).getCorrectAnswer());
+        assertTrue(CompiledQuestionBank.isFresh(txt, files.getSnapshotPath()));
+        // ids come from the file IDs: negative, distinct, and the same in the lazy wrapper
+        long id1 = bank.idOf(1);
+        assertTrue(id1 < 0 && bank.idOf(2) < 0);
+        assertNotEquals(id1, bank.idOf(2));
+        assertEquals(id1, bank.getByNumber(1).getId());
+        QuestionBank lazy = LazyQuestionBank.fromSnapshot((CompiledQuestionBank) bank, 4);
+        assertEquals(id1, lazy.idOf(1));
+        assertEquals(bank.idOf(2), lazy.getByNumber(2).getId());
+        SeenFilter seen = new SeenFilter();
+        seen.add(id1);
+        assertTrue(seen.mightHaveSeen(id1), "snapshot questions can be remembered as seen");
+
+        java.nio.file.Files.writeString(txt, "Q1|Only one now|A|B|C|D|D\n");
+        java.nio.file.Files.setLastModifiedTime(txt, java.nio.file.attribute.FileTime.fromMillis(1_000_000L));
+        assertFalse(CompiledQuestionBank.isFresh(txt, files.getSnapshotPath()));
+        QuestionBank rebuilt = files.loadCompiled();
+        assertEquals(1, rebuilt.size());
+        assertEquals("Only one now", rebuilt.getByNumber(1).getQuestion());
+        assertEquals(id1, rebuilt.idOf(1), "same file ID, same id after a rebuild");
+    }
+    // this test checks packs are merged in file name order and every pack's errors are reported
+    @Test
+    void packLoaderMergesInNameOrderAndCollectsErrors(@org.junit.jupiter.api.io.TempDir java.nio.file.Path dir)
+            throws java.io.IOException {
+        java.nio.file.Files.writeString(dir.resolve("b-science.txt"), "S1|Science?|A|B|C|D|A\nS2|Broken|A|B|C|D|Z\n");
+        java.nio.file.Files.writeString(dir.resolve("a-history.txt"), "H1|History?|A|B|C|D|B\nH2|Too few|A|B\n");
+        java.nio.file.Files.writeString(dir.resolve("c-dupes.txt"), "H1|Again?|A|B|C|D|C\n");
+        java.nio.file.Files.writeString(dir.resolve("notes.md"), "not a pack");
+
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(3);
+        QuestionPackLoader.Result r;
+        try {
+            r = new QuestionPackLoader(dir, pool).load();
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(3, r.getBank().size());
+        assertEquals("History?", r.getBank().getByNumber(1).getQuestion());
+        assertEquals("Science?", r.getBank().getByNumber(2).getQuestion());
+        assertEquals("Again?", r.getBank().getByNumber(3).getQuestion());
+        assertEquals(3, r.getErrorCount(), "one bad line in two packs plus a duplicate ID");
+        assertTrue(r.summary().contains("a-history.txt line: 2"));
+        assertTrue(r.summary().contains("b-science.txt line: 2"));
+        assertTrue(r.summary().contains("duplicate ID H1"));
+        assertThrows(IllegalArgumentException.class, () -> new QuestionPackLoader(dir).loadAll());
+    }
+    // this test checks the off-heap bank gives back the same questions, stores shared
+    // answers once, and copes with more questions than fit in one record segment
+    @Test
+    void offHeapBankRoundTripsAndDeduplicatesText() {
+        OffHeapQuestionBank.Builder b = OffHeapQuestionBank.builder();
+        int n = 40_000;
+        for (int i = 1; i <= n; i++) {
+            b.add(Question.of(i, "Is " + i + " even? \u2713", "True", "False", "None of the above", "Both", i % 2));
+        }
+        OffHeapQuestionBank bank = b.build();
+        assertEquals(n, bank.size());
+        assertEquals(n + 4, bank.uniqueStrings(), "one stem per question, the answers are shared");
+        for (int i : new int[]{1, 32_768, 32_769, n}) {
+            Question q = bank.getByNumber(i);
+            assertEquals(i, q.getId());
+            assertEquals("Is " + i + " even? \u2713", q.getQuestion());
+            assertEquals("None of the above", q.getOption(2).getText());
+            assertEquals(i % 2, q.getCorrectAnswer());
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> bank.getByNumber(n + 1));
+        assertThrows(UnsupportedOperationException.class, () -> bank.add(Question.of("Q?", "A", "B", "C", "D", 0)));
+    }
+    // this test checks tier pools deal one question per tier, never repeat within a game,
+    // and that tiers can come from the file's optional 8th field
+    @Test
+    void tieredPoolsDealOneQuestionPerTierWithoutRepeats() throws java.io.IOException {
+        java.util.List<Question> qs = new java.util.ArrayList<>();
+        for (int i = 1; i <= 150; i++) {
+            qs.add(Question.of("Q" + i + "?", "A", "B", "C", "D", i % 4)); // untagged: 10 per tier by position
+        }
+        QuestionBank bank = QuestionBank.copyOf(qs);
+        TieredQuestionPools pools = TieredQuestionPools.of(bank, 15);
+        assertEquals(10, pools.poolSize(1));
+
+        GameEngine engine = new GameEngine(bank, PrizeLadder.classic(), pools);
+        GameState game = engine.startGame("Random");
+        int[] order = game.getQuestionOrder();
+        assertEquals(15, order.length);
+        for (int q = 1; q <= 15; q++) {
+            assertTrue(order[q - 1] > (q - 1) * 10 && order[q - 1] <= q * 10, "question " + q + " from tier " + q);
+        }
+        assertEquals(bank.getByNumber(order[0]), engine.getCurrentQuestion(game));
+
+        TieredQuestionPools.Draw draw = pools.newDraw(new java.util.SplittableRandom(7));
+        java.util.Set<Integer> seen = new java.util.HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(seen.add(draw.next(1)), "no repeats");
+        }
+        assertTrue(draw.next(1) > 10, "tier 1 used up, falls back to tier 2");
+
+        java.util.List<Question> parsed = new java.util.ArrayList<>();
+        QuestionFileParser.Report report = QuestionFileParser.parse(new java.io.StringReader(
+                "T1|Tiered?|A|B|C|D|A|7\nT2|Bad tier|A|B|C|D|A|x\n"), "tiers.txt", (line, id, q) -> parsed.add(q));
+        assertEquals(7, parsed.get(0).getTier());
+        assertEquals(1, report.getErrorCount());
+    }
+    // this test checks skipping seen questions never moves a question to another tier,
+    // even when every tier has only one question
+    @Test
+    void seenQuestionsNeverScrambleTheTierOrder() {
+        java.util.List<Question> qs = new java.util.ArrayList<>();
+        for (int i = 1; i <= 15; i++) {
+            qs.add(Question.of(i, i, "Q" + i + "?", "A", "B", "C", "D", i % 4));
+        }
+        QuestionBank bank = QuestionBank.copyOf(qs);
+        TieredQuestionPools pools = TieredQuestionPools.of(bank, 15);
+        int[] inOrder = new int[15];
+        for (int i = 1; i <= 15; i++) inOrder[i - 1] = i;
+
+        SeenFilter firstFive = new SeenFilter();
+        for (long id = 1; id <= 5; id++) firstFive.add(id);
+        assertArrayEquals(inOrder, pools.drawGame(new java.util.SplittableRandom(3), 15, firstFive));
+
+        SeenFilter all = new SeenFilter();
+        for (long id = 1; id <= 15; id++) all.add(id);
+        assertArrayEquals(inOrder, pools.drawGame(new java.util.SplittableRandom(3), 15, all));
+    }
+    // this test checks a seeded deal replays exactly and shuffled answers still map to the bank's
+    @Test
+    void seededDealsReplayAndShuffledAnswersMapBack() {
+        java.util.List<Question> qs = new java.util.ArrayList<>();
+        for (int i = 1; i <= 150; i++) {
+            qs.add(Question.of("Q" + i + "?", "A" + i, "B" + i, "C" + i, "D" + i, i % 4));
+        }
+        QuestionBank bank = QuestionBank.copyOf(qs);
+        GameEngine engine = new GameEngine(bank, PrizeLadder.classic(), TieredQuestionPools.of(bank, 15), true);
+
+        GameState first = engine.startGame("Replay");
+        GameState again = engine.startGame("Replay", first.getSeed());
+        assertArrayEquals(first.getQuestionOrder(), again.getQuestionOrder());
+
+        java.util.Set<Integer> orders = new java.util.HashSet<>();
+        while (!engine.gameIsOver(first)) {
+            Question shown = engine.getCurrentQuestion(first);
+            Question replayed = engine.getCurrentQuestion(again);
+            Question original = bank.getByNumber(first.getBankNumber());
+            orders.add(first.getOptionOrder());
+            assertEquals(shown.getCorrectAnswer(), replayed.getCorrectAnswer());
+            for (int slot = 0; slot < 4; slot++) {
+                assertSame(original.getOption(first.toBankOption(slot)), shown.getOption(slot));
+            }
+            assertEquals(original.getCorrectAnswer(), first.toBankOption(shown.getCorrectAnswer()));
+            engine.answer(first, shown.getCorrectAnswer());
+            engine.answer(again, replayed.getCorrectAnswer());
+        }
+        assertTrue(engine.isWon(first) && engine.isWon(again));
+        assertTrue(orders.size() > 1, "answers are shuffled per question");
+    }
+    // this test checks a game packed into a SessionStore plays the same as a heap GameState
+    @Test
+    void packedSessionsPlayLikeHeapGames(@org.junit.jupiter.api.io.TempDir java.nio.file.Path dir)
+            throws java.io.IOException {
+        java.util.List<Question> qs = new java.util.ArrayList<>();
+        for (int i = 1; i <= 150; i++) {
+            qs.add(Question.of("Q" + i + "?", "A", "B", "C", "D", i % 4));
+        }
+        QuestionBank bank = QuestionBank.copyOf(qs);
+        PrizeLadder ladder = PrizeLadder.classic();
+        GameEngine engine = new GameEngine(bank, ladder, TieredQuestionPools.of(bank, 15), true);
+        SessionStore store = new SessionStore(ladder);
+        GameJournal journal = GameJournal.open(dir);
+        engine.addListener(journal);
+
+        GameState heap = engine.startGame("Heap");
+        int slot = store.add(42L, engine.startGame("Packed", heap.getSeed()));
+        assertEquals(42L, store.playerOf(slot));
+        assertArrayEquals(heap.getQuestionOrder(), store.view(slot).getQuestionOrder());
+
+        engine.useFiftyFiftyLifeLine(heap);
+        engine.useFiftyFiftyLifeLine(store.view(slot));
+        for (int n = 0; n < 7; n++) {
+            engine.answer(heap, engine.getCurrentQuestion(heap).getCorrectAnswer());
+            GameState packed = store.view(slot);
+            engine.answer(packed, engine.getCurrentQuestion(packed).getCorrectAnswer());
+        }
+        GameState packed = store.view(slot);
+        assertEquals("Packed", packed.getName());
+        assertEquals(heap.getQuestionNumber(), packed.getQuestionNumber());
+        assertEquals(heap.getCurrentPrize(), packed.getCurrentPrize());
+        assertEquals(heap.getGuaranteedPrize(), packed.getGuaranteedPrize());
+        assertTrue(packed.hasUsed5050());
+        assertFalse(packed.hasUsedLifeline());
+        assertEquals(1, packed.getLifelineUses().size());
+        assertEquals(engine.getCurrentQuestion(heap).getQuestion(), engine.getCurrentQuestion(packed).getQuestion());
+
+        engine.answer(heap, (engine.getCurrentQuestion(heap).getCorrectAnswer() + 1) % 4);
+        engine.answer(packed, (engine.getCurrentQuestion(packed).getCorrectAnswer() + 1) % 4);
+        assertTrue(engine.gameIsOver(store.view(slot)));
+        assertEquals(heap.getCurrentPrize(), store.view(slot).getCurrentPrize());
+        journal.close();
+        assertEquals(0, journal.stats().dropped());
+        engine.answer(engine.startGame("Late"), 0);
+        assertEquals(2, journal.stats().dropped(), "events after close are counted, not logged");
+        java.util.List<GameJournal.Event> events = GameJournal.readAll(dir);
+        assertEquals(2, events.stream().filter(e -> e instanceof GameJournal.Started).count(),
+                "every view of the packed game logs under the id it started with");
+        long packedId = events.stream().filter(e -> e instanceof GameJournal.Started s && s.player().equals("Packed"))
+                .findFirst().orElseThrow().gameId();
+        assertEquals(10, events.stream().filter(e -> e.gameId() == packedId).count());
+
+        GameState stale = store.view(slot);
+        store.remove(slot);
+        assertThrows(IllegalArgumentException.class, () -> store.view(slot));
+        int reused = store.add(7L, engine.startGame("Next"));
+        assertEquals(slot, reused, "freed slots are reused");
+        assertThrows(IllegalStateException.class, () -> engine.answer(stale, 0), "a view of the removed game");
+        assertEquals("Next", store.view(reused).getName());
+        assertEquals(1, store.view(reused).getQuestionNumber());
+        assertTrue(store.view(reused).getLifelineUses().isEmpty());
+        assertEquals(1, store.size());
+    }
+    // this test checks games in progress come back from the checkpoint file after a restart
+    // or after being left, and finished or torn records don't
+    @Test
+    void checkpointedGamesResumeAfterRestart(@org.junit.jupiter.api.io.TempDir java.nio.file.Path dir)
+            throws java.io.IOException {
+        java.util.List<Question> qs = new java.util.ArrayList<>();
+        for (int i = 1; i <= 150; i++) {
+            qs.add(Question.of(i, 0, "Q" + i + "?", "A", "B", "C", "D", i % 4));
+        }
+        QuestionBank bank = QuestionBank.copyOf(qs);
+        PrizeLadder ladder = PrizeLadder.classic();
+        java.nio.file.Path file = dir.resolve("checkpoints.bin");
+
+        GameState alice;
+        try (SessionCheckpoints cp = SessionCheckpoints.open(file, ladder)) {
+            GameEngine engine = new GameEngine(bank, ladder, TieredQuestionPools.of(bank, 15), true);
+            engine.addListener(cp);
+            alice = engine.startGame("Alice");
+            for (int n = 0; n < 6; n++) {
+                engine.answer(alice, engine.getCurrentQuestion(alice).getCorrectAnswer());
+            }
+            engine.revealCorrectAnswer(alice);
+            cp.attachSession(alice, 77L, java.time.Instant.ofEpochMilli(123_000L));
+            GameState bob = engine.startGame("Bob");
+            engine.answer(bob, (engine.getCurrentQuestion(bob).getCorrectAnswer() + 1) % 4);
+            for (int i = 0; i < 100; i++) {
+                engine.startGame("Carol" + i); // grows the file past its first 64 records
+            }
+            assertEquals(101, cp.size(), "Bob's finished game freed its record");
+        }
+        // tear one of the Carol records as if the process died mid-write
+        try (java.nio.channels.FileChannel ch = java.nio.channels.FileChannel.open(file,
+                java.nio.file.StandardOpenOption.WRITE)) {
+            ch.write(java.nio.ByteBuffer.wrap(new byte[]{42}), java.nio.file.Files.size(file) / 2 + 40);
+        }
+
+        try (SessionCheckpoints cp = SessionCheckpoints.open(file, ladder)) {
+            assertEquals(100, cp.size());
+            assertTrue(cp.savedPlayers().contains("Alice"));
+            assertFalse(cp.savedPlayers().contains("Bob"));
+            GameEngine engine = new GameEngine(bank, ladder, TieredQuestionPools.of(bank, 15), true);
+            engine.addListener(cp);
+            GameState resumed = cp.resume("Alice", engine);
+            assertNotNull(resumed);
+            assertEquals(alice.getQuestionNumber(), resumed.getQuestionNumber());
+            assertEquals(alice.getCurrentPrize(), resumed.getCurrentPrize());
+            assertEquals(alice.getGuaranteedPrize(), resumed.getGuaranteedPrize());
+            assertTrue(resumed.hasUsedLifeline());
+            assertFalse(resumed.hasUsed5050());
+            LifelineUse reveal = alice.getLifelineUses().get(0);
+            assertEquals(1, resumed.getLifelineUses().size(), "lifeline uses come back too");
+            assertEquals(reveal.name(), resumed.getLifelineUses().get(0).name());
+            assertEquals(reveal.questionId(), resumed.getLifelineUses().get(0).questionId());
+            assertEquals(reveal.questionNumber(), resumed.getLifelineUses().get(0).questionNumber());
+            assertEquals(new SessionCheckpoints.SavedSession(77L, java.time.Instant.ofEpochMilli(123_000L)),
+                    cp.sessionOf(resumed), "the same session row carries on");
+            assertEquals(alice.getSeed(), resumed.getSeed());
+            assertArrayEquals(alice.getQuestionOrder(), resumed.getQuestionOrder());
+            assertEquals(engine.getCurrentQuestion(alice).getQuestion(), engine.getCurrentQuestion(resumed).getQuestion());
+            assertEquals(engine.getCurrentQuestion(alice).getCorrectAnswer(),
+                    engine.getCurrentQuestion(resumed).getCorrectAnswer(), "same answer order");
+            assertNull(cp.resume("Alice", engine), "only resumed once");
+
+            // a bank that no longer has the dealt questions drops the saved game
+            java.util.List<Question> other = new java.util.ArrayList<>();
+            for (int i = 1; i <= 150; i++) {
+                other.add(Question.of(1000 + i, 0, "R" + i + "?", "A", "B", "C", "D", 0));
+            }
+            QuestionBank changed = QuestionBank.copyOf(other);
+            assertNull(cp.resume("Carol0", new GameEngine(changed, ladder, TieredQuestionPools.of(changed, 15))));
+            assertEquals(98, cp.restoreAll(engine).size());
+
+            // leaving a game parks it for this process too, not only after a restart
+            GameState dave = engine.startGame("Dave");
+            dave.setJournalId(4242L); // as GameJournal.started would
+            engine.answer(dave, engine.getCurrentQuestion(dave).getCorrectAnswer());
+            engine.answer(dave, engine.getCurrentQuestion(dave).getCorrectAnswer());
+            assertNull(cp.resume("Dave", engine), "still being played");
+            cp.leave(dave);
+            assertTrue(cp.savedPlayers().contains("Dave"));
+            int[] dealt = dave.getQuestionOrder().clone();
+            java.util.Arrays.sort(dealt);
+            assertArrayEquals(java.util.Arrays.stream(dealt).mapToLong(engine.getQuestionBank()::idOf).toArray(),
+                    cp.savedQuestionIds("Dave"), "the ids a sampled game's bank is rebuilt from");
+            assertNull(cp.savedQuestionIds("Nobody"));
+            GameState back = cp.resume("Dave", engine);
+            assertNotNull(back);
+            assertEquals(3, back.getQuestionNumber());
+            assertArrayEquals(dave.getQuestionOrder(), back.getQuestionOrder());
+            assertEquals(4242L, back.getJournalId(), "the resumed game logs under its old journal id");
+
+            // a name longer than a record holds still finds its saved game
+            String longName = "L".repeat(100);
+            GameState longGame = engine.startGame(longName);
+            engine.answer(longGame, engine.getCurrentQuestion(longGame).getCorrectAnswer());
+            cp.leave(longGame);
+            assertNotNull(cp.savedQuestionIds(longName));
+            GameState longBack = cp.resume(longName, engine);
+            assertNotNull(longBack, "resumed by the full name");
+            assertEquals(2, longBack.getQuestionNumber());
+        }
+    }
+    // this test checks every start, answer and lifeline is journaled in order across segments,
+    // and that a torn tail only ends its own segment
+    @Test
+    void journalRecordsEveryEventAcrossSegments(@org.junit.jupiter.api.io.TempDir java.nio.file.Path dir)
+            throws java.io.IOException {
+        java.util.List<Question> qs = new java.util.ArrayList<>();
+        for (int i = 1; i <= 150; i++) {
+            qs.add(Question.of(i, 0, "Q" + i + "?", "A", "B", "C", "D", i % 4));
+        }
+        QuestionBank bank = QuestionBank.copyOf(qs);
+        GameEngine engine = new GameEngine(bank, PrizeLadder.classic(), TieredQuestionPools.of(bank, 15), true);
+
+        GameState first;
+        try (GameJournal journal = GameJournal.open(dir, 2048, 2)) {
+            engine.addListener(journal);
+            first = engine.startGame("Journal");
+            engine.useFiftyFiftyLifeLine(first);
+            while (!engine.gameIsOver(first)) {
+                engine.answer(first, engine.getCurrentQuestion(first).getCorrectAnswer());
+            }
+            for (int g = 0; g < 200; g++) {
+                GameState other = engine.startGame("Other" + g);
+                engine.answer(other, (engine.getCurrentQuestion(other).getCorrectAnswer() + 1) % 4);
+            }
+            journal.sync();
+            assertEquals(417, journal.stats().events());
+            assertTrue(journal.stats().segments() > 1, "small segments rotate");
+        }
+
+        java.util.List<GameJournal.Event> events = GameJournal.readAll(dir);
+        assertEquals(417, events.size());
+        GameJournal.Started start = (GameJournal.Started) events.get(0);
+        assertEquals("Journal", start.player());
+        assertEquals(first.getSeed(), start.seed());
+        assertEquals(GameJournal.Lifeline.class, events.get(1).getClass());
+        for (int n = 1; n <= 15; n++) {
+            GameJournal.Answered a = (GameJournal.Answered) events.get(1 + n);
+            assertEquals(start.gameId(), a.gameId());
+            assertEquals(n, a.questionNumber());
+            Question asked = bank.getByNumber(first.getQuestionOrder()[n - 1]);
+            assertEquals(asked.getId(), a.questionId());
+            assertEquals(asked.getCorrectAnswer(), a.chosen(), "stored as the bank's option");
+            assertTrue(a.correct());
+            assertEquals(n == 15, a.won());
+        }
+
+        // a crash mid-write leaves half an event at the end of the newest segment
+        java.nio.file.Path last;
+        try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.list(dir)) {
+            last = files.max(java.util.Comparator.naturalOrder()).orElseThrow();
+        }
+        java.nio.file.Files.write(last, new byte[]{0, 0, 0, 40, 2, 1}, java.nio.file.StandardOpenOption.APPEND);
+        GameJournal.ReadReport report = GameJournal.read(dir, e -> { });
+        assertEquals(417, report.events());
+        assertEquals(1, report.tornSegments());
+
+        // reopening starts a new segment after the old ones
+        try (GameJournal again = GameJournal.open(dir)) {
+            engine.addListener(again);
+            engine.startGame("Later");
+        }
+        assertEquals(418, GameJournal.readAll(dir).size());
+    }
 }